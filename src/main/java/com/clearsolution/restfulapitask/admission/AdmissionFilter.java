@@ -0,0 +1,169 @@
+package com.clearsolution.restfulapitask.admission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control in front of {@code /v1/api/users}. A request is turned away at once, before it can wait for a
+ * database connection, when its client has used up its token bucket ({@code 429}) or its {@link EndpointGroup}
+ * already has as many requests in flight as its limit allows ({@code 503}). Both carry {@code Retry-After}. A request
+ * that goes async, like a change event poll or stream, holds its slot until its response completes; the event limit
+ * is therefore fixed, as the time a consumer stays connected says nothing about load.
+ * <p>
+ * Clients are told apart by remote address; behind a proxy that needs {@code server.forward-headers-strategy}.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "app.admission.enabled", havingValue = "true")
+public class AdmissionFilter extends OncePerRequestFilter implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionFilter.class);
+
+    private static final String BASE_PATH = "/v1/api/users";
+    private static final int MAX_TRACKED_CLIENTS = 100_000;
+
+    private final Map<EndpointGroup, ConcurrencyLimiter> limiters = new EnumMap<>(EndpointGroup.class);
+    private final double requestsPerSecond;
+    private final int burst;
+    private final Cache<String, TokenBucket> buckets;
+
+    public AdmissionFilter(@Value("${app.admission.read.max-concurrent}") int readLimit,
+                           @Value("${app.admission.search.max-concurrent}") int searchLimit,
+                           @Value("${app.admission.write.max-concurrent}") int writeLimit,
+                           @Value("${app.admission.events.max-concurrent}") int eventsLimit,
+                           @Value("${app.admission.adaptive.enabled}") boolean adaptive,
+                           @Value("${app.admission.adaptive.min-concurrent}") int minLimit,
+                           @Value("${app.admission.adaptive.latency-threshold}") Duration latencyThreshold,
+                           @Value("${app.admission.rate-limit.requests-per-second}") double requestsPerSecond,
+                           @Value("${app.admission.rate-limit.burst}") int burst,
+                           @Value("${app.admission.rate-limit.idle-ttl}") Duration idleTtl) {
+        limiters.put(EndpointGroup.READ, new ConcurrencyLimiter(minLimit, readLimit, adaptive, latencyThreshold));
+        limiters.put(EndpointGroup.SEARCH, new ConcurrencyLimiter(minLimit, searchLimit, adaptive, latencyThreshold));
+        limiters.put(EndpointGroup.WRITE, new ConcurrencyLimiter(minLimit, writeLimit, adaptive, latencyThreshold));
+        limiters.put(EndpointGroup.EVENTS, new ConcurrencyLimiter(eventsLimit));
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(idleTtl)
+                .maximumSize(MAX_TRACKED_CLIENTS)
+                .build();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !path(request).startsWith(BASE_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        EndpointGroup group = EndpointGroup.of(request.getMethod(), path(request).substring(BASE_PATH.length()));
+        if (requestsPerSecond > 0) {
+            long now = System.nanoTime();
+            long waitNanos = buckets.get(request.getRemoteAddr(), client -> new TokenBucket(burst, requestsPerSecond, now))
+                    .tryConsume(now);
+            if (waitNanos > 0) {
+                reject(response, group, "rate", HttpStatus.TOO_MANY_REQUESTS, waitNanos, "Too many requests, retry later");
+                return;
+            }
+        }
+        ConcurrencyLimiter limiter = limiters.get(group);
+        if (!limiter.tryAcquire()) {
+            reject(response, group, "concurrency", HttpStatus.SERVICE_UNAVAILABLE, 0, "Server is busy, retry later");
+            return;
+        }
+        long started = System.nanoTime();
+        boolean failed = true;
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            failed = isFailure(response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        limiter.release(System.nanoTime() - started, isFailure(response));
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                limiter.release(System.nanoTime() - started, failed);
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        limiters.forEach((group, limiter) -> {
+            Gauge.builder("users.admission.limit", limiter, ConcurrencyLimiter::limit)
+                    .description("Requests allowed in flight at once")
+                    .tag("group", group.name().toLowerCase())
+                    .register(registry);
+            Gauge.builder("users.admission.in-flight", limiter, ConcurrencyLimiter::inFlight)
+                    .description("Requests currently in flight")
+                    .tag("group", group.name().toLowerCase())
+                    .register(registry);
+        });
+        Gauge.builder("users.admission.rate-limit.clients", buckets, Cache::estimatedSize)
+                .description("Clients with a token bucket")
+                .register(registry);
+    }
+
+    private static boolean isFailure(HttpServletResponse response) {
+        return response.getStatus() >= HttpStatus.INTERNAL_SERVER_ERROR.value();
+    }
+
+    private void reject(HttpServletResponse response, EndpointGroup group, String reason, HttpStatus status, long waitNanos,
+                        String message) throws IOException {
+        Metrics.counter("users.admission.rejected", "group", group.name().toLowerCase(), "reason", reason).increment();
+        logger.warn("Request to {} endpoints rejected: {} limit reached", group, reason);
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos - 1) + 1)));
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.getWriter().write(message);
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+}
@@ -0,0 +1,61 @@
+package com.clearsolution.restfulapitask.admission;
+
+import java.time.Duration;
+
+/**
+ * Limit on the requests of one {@link EndpointGroup} in flight at once. A fixed limiter keeps its limit. An adaptive
+ * one follows AIMD: it grows by one for a request that finished under the latency threshold while at least half the
+ * slots were busy, and shrinks by a tenth, down to {@code minLimit}, for one that was slower or failed.
+ */
+class ConcurrencyLimiter {
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final boolean adaptive;
+    private final long latencyThresholdNanos;
+
+    private int limit;
+    private int inFlight;
+
+    ConcurrencyLimiter(int limit) {
+        this(limit, limit, false, Duration.ZERO);
+    }
+
+    ConcurrencyLimiter(int minLimit, int maxLimit, boolean adaptive, Duration latencyThreshold) {
+        this.minLimit = Math.max(1, Math.min(minLimit, maxLimit));
+        this.maxLimit = maxLimit;
+        this.adaptive = adaptive;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.limit = maxLimit;
+    }
+
+    synchronized boolean tryAcquire() {
+        if (inFlight >= limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    synchronized void release(long latencyNanos, boolean failed) {
+        inFlight--;
+        if (!adaptive) {
+            return;
+        }
+        if (failed || latencyNanos > latencyThresholdNanos) {
+            limit = Math.max(minLimit, (int) (limit * BACKOFF_RATIO));
+        } else if ((inFlight + 1) * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1);
+        }
+    }
+
+    synchronized int limit() {
+        return limit;
+    }
+
+    synchronized int inFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,32 @@
+package com.clearsolution.restfulapitask.admission;
+
+/**
+ * Endpoints of {@code /v1/api/users} that share a concurrency limit. Searches are kept apart from writes so a burst
+ * of range scans cannot take the slots creates and updates need.
+ */
+public enum EndpointGroup {
+    // Single-user lookups by id, email or ingest tracking id
+    READ,
+    // Birthday searches, streams, statistics and the export
+    SEARCH,
+    // Everything that changes users, imports included
+    WRITE,
+    // Change event polls and streams, which hold their slot for as long as they stay open
+    EVENTS;
+
+    /**
+     * @param path the request path below {@code /v1/api/users}
+     */
+    public static EndpointGroup of(String method, String path) {
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return WRITE;
+        }
+        if (path.equals("/events") || path.startsWith("/events/")) {
+            return EVENTS;
+        }
+        if (path.startsWith("/search") || path.startsWith("/stats/") || path.startsWith("/birthdays/") || path.equals("/export")) {
+            return SEARCH;
+        }
+        return READ;
+    }
+}
@@ -0,0 +1,187 @@
+package com.clearsolution.restfulapitask.cache;
+
+import com.clearsolution.restfulapitask.data.BirthdayRange;
+import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.replica.ReadYourWritesFilter;
+import com.clearsolution.restfulapitask.shard.ShardRouter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Birthday range searches with identical ranges running at the same time share one query, and searches answered
+ * with the same representation share one serialized response. Results can additionally
+ * be kept for a short {@code ttl}; a write drops every kept result it could change, that is every range holding the
+ * user's new birthday and every result listing the user.
+ * <p>
+ * A write is applied when it is made and again once its transaction completes, and a result is only kept when no
+ * write happened while its query ran, so a query that read the rows before the commit is never kept. Every caller
+ * gets its own copies of the users in an unmodifiable list.
+ * <p>
+ * A request pinned to the primary by {@link ReadYourWritesFilter} neither joins nor keeps anything: a shared query or
+ * a kept result may come from a replica that has not got the client's own write yet.
+ */
+@Component
+public class BirthdaySearchCache implements MeterBinder {
+
+    private final boolean enabled;
+    private final SingleFlight<SearchKey, List<User>> searches = new SingleFlight<>();
+    private final SingleFlight<BirthdayRange, byte[]> responses = new SingleFlight<>();
+    private final Cache<SearchKey, List<User>> results;
+    private final AtomicLong writes = new AtomicLong();
+    private final LongAdder queries = new LongAdder();
+
+    public BirthdaySearchCache(@Value("${app.search.coalescing.enabled}") boolean enabled,
+                               @Value("${app.search.result-cache.ttl}") Duration ttl,
+                               @Value("${app.search.result-cache.max-size}") long maxSize) {
+        this.enabled = enabled;
+        this.results = ttl.isZero() ? null : Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+    }
+
+    public List<User> get(LocalDate from, LocalDate to, Supplier<List<User>> query) {
+        if (!enabled || ReadYourWritesFilter.isPinnedToPrimary()) {
+            queries.increment();
+            return query.get();
+        }
+        // A search run on one shard only sees that shard's users
+        SearchKey key = new SearchKey(ShardRouter.currentShard(), new BirthdayRange(from, to));
+        if (results != null) {
+            List<User> cached = results.getIfPresent(key);
+            if (cached != null) {
+                return copies(cached);
+            }
+        }
+        return copies(searches.execute(key, () -> {
+            queries.increment();
+            long writesBefore = writes.get();
+            List<User> users = Collections.unmodifiableList(query.get());
+            if (results != null && writes.get() == writesBefore) {
+                results.put(key, users);
+            }
+            return users;
+        }));
+    }
+
+    /**
+     * Response body for a range, shared with identical requests running at the same time. The caller must not
+     * modify the returned bytes.
+     */
+    public byte[] getResponse(BirthdayRange range, Supplier<byte[]> body) {
+        return enabled && !ReadYourWritesFilter.isPinnedToPrimary() ? responses.execute(range, body) : body.get();
+    }
+
+    /**
+     * A new user with this birthday was stored.
+     */
+    public void invalidate(LocalDate birthday) {
+        invalidate(null, birthday);
+    }
+
+    /**
+     * The user with this id was updated to this birthday, or deleted when the birthday is {@code null}.
+     */
+    public void invalidate(Long userId, LocalDate birthday) {
+        afterWrite(() -> evict(userId, birthday));
+    }
+
+    /**
+     * Drops everything, for bulk writes where checking every user would cost more than the searches saved.
+     */
+    public void invalidateAll() {
+        afterWrite(() -> {
+            writes.incrementAndGet();
+            searches.forget(key -> true);
+            responses.forget(range -> true);
+            if (results != null) {
+                results.invalidateAll();
+            }
+        });
+    }
+
+    /**
+     * Queries actually run for searches, whether or not coalescing is enabled.
+     */
+    public long queryCount() {
+        return queries.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("users.search.queries", queries, LongAdder::sum)
+                .description("Birthday searches that ran their own query")
+                .register(registry);
+        FunctionCounter.builder("users.search.coalesced", searches, SingleFlight::joinedCount)
+                .description("Birthday searches answered by an identical search already running")
+                .register(registry);
+        FunctionCounter.builder("users.search.responses.shared", responses, SingleFlight::joinedCount)
+                .description("Search responses taken from an identical request already serializing")
+                .register(registry);
+        if (results != null) {
+            CaffeineCacheMetrics.monitor(registry, results, "birthdaySearches");
+        }
+    }
+
+    private void afterWrite(Runnable eviction) {
+        if (!enabled) {
+            return;
+        }
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    eviction.run();
+                }
+            });
+        }
+    }
+
+    private void evict(Long userId, LocalDate birthday) {
+        writes.incrementAndGet();
+        // Whether a running search lists the user is only known once it returns, so none of them is joined any more
+        searches.forget(key -> true);
+        responses.forget(range -> true);
+        if (results != null) {
+            results.asMap().entrySet().removeIf(entry -> (birthday != null && entry.getKey().range().contains(birthday))
+                    || (userId != null && listsUser(entry.getValue(), userId)));
+        }
+    }
+
+    private static List<User> copies(List<User> users) {
+        List<User> copies = new ArrayList<>(users.size());
+        users.forEach(user -> copies.add(User.copyOf(user)));
+        return Collections.unmodifiableList(copies);
+    }
+
+    private static boolean listsUser(List<User> users, Long userId) {
+        for (User user : users) {
+            if (userId.equals(user.getId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record SearchKey(Integer shard, BirthdayRange range) {
+    }
+}
@@ -0,0 +1,100 @@
+package com.clearsolution.restfulapitask.cache;
+
+import com.clearsolution.restfulapitask.model.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of users by id. Entries are copies, so callers may freely modify what they get back
+ * without touching the cached state. Hit, miss and eviction counters are published as {@code cache.*} metrics
+ * tagged {@code cache=users}.
+ * <p>
+ * Writes inside a transaction take effect once it completes, so other readers never get a state that is not committed
+ * yet, or never will be.
+ */
+@Component
+public class UserCache implements MeterBinder {
+
+    private final Cache<Long, User> cache;
+
+    public UserCache(@Value("${app.cache.users.max-size}") long maxSize, @Value("${app.cache.users.ttl}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    public Optional<User> get(Long userId, Function<Long, Optional<User>> loader) {
+        // Absent users are not cached, the loader runs again on the next lookup
+        User user = cache.get(userId, id -> loader.apply(id).map(User::copyOf).orElse(null));
+        return Optional.ofNullable(user).map(User::copyOf);
+    }
+
+    public Optional<User> getIfPresent(Long userId) {
+        return Optional.ofNullable(cache.getIfPresent(userId)).map(User::copyOf);
+    }
+
+    /**
+     * Caches the user as the current transaction wrote it once that commits. Until then, and for good on a rollback, the
+     * entry is dropped. A commit that finishes after a newer one does not replace the newer version.
+     */
+    public void put(User user) {
+        User copy = User.copyOf(user);
+        cache.invalidate(copy.getId());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    putLatest(copy);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        cache.invalidate(copy.getId());
+                    }
+                }
+            });
+        } else {
+            putLatest(copy);
+        }
+    }
+
+    /**
+     * Drops the user now and again once the current transaction completes, as a reader can load the old state in
+     * between.
+     */
+    public void evict(Long userId) {
+        cache.invalidate(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(userId);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "users");
+    }
+
+    private void putLatest(User user) {
+        cache.asMap().merge(user.getId(), user, (cached, written) -> cached.getVersion() != null && written.getVersion() != null
+                && cached.getVersion() > written.getVersion() ? cached : written);
+    }
+}
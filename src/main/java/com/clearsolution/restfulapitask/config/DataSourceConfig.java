@@ -0,0 +1,47 @@
+package com.clearsolution.restfulapitask.config;
+
+import com.clearsolution.restfulapitask.shard.ShardRoutingDataSource;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.concurrency-limit.enabled", havingValue = "true")
+public class DataSourceConfig {
+
+    /**
+     * Limits the data source bean, except one routing between shards or between the primary and its replicas, whose
+     * pools are limited one by one in {@link ShardDataSourceConfig} and {@link ReplicaDataSourceConfig}.
+     */
+    @Bean
+    public static BeanPostProcessor concurrencyLimitingDataSourcePostProcessor(
+            @Value("${app.datasource.concurrency-limit.max-concurrent}") int maxConcurrent,
+            @Value("${app.datasource.concurrency-limit.acquire-timeout}") Duration acquireTimeout) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ConcurrencyLimitingDataSource)
+                        && !(bean instanceof ShardRoutingDataSource) && !(bean instanceof LazyConnectionDataSourceProxy)) {
+                    return new ConcurrencyLimitingDataSource(dataSource, maxConcurrent, acquireTimeout);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder concurrencyLimitingDataSourceMetrics(DataSource dataSource) {
+        return registry -> {
+            if (dataSource instanceof ConcurrencyLimitingDataSource limitingDataSource) {
+                limitingDataSource.bindTo(registry);
+            }
+        };
+    }
+}
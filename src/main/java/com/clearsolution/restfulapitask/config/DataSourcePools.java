@@ -0,0 +1,55 @@
+package com.clearsolution.restfulapitask.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Extra pools for configurations that replace the single auto-configured one.
+ */
+final class DataSourcePools {
+
+    private DataSourcePools() {
+    }
+
+    /**
+     * A Hikari pool set up like the auto-configured one, {@code spring.datasource.hikari.*} included, for another URL.
+     */
+    static HikariDataSource pool(DataSourceProperties properties, Environment environment,
+                                 ObjectProvider<MeterRegistry> meterRegistry, String name, String url) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        meterRegistry.ifAvailable(pool::setMetricRegistry);
+        return pool;
+    }
+
+    /**
+     * The pool behind a {@link ConcurrencyLimitingDataSource} of its own when
+     * {@code app.datasource.concurrency-limit.enabled} is set. Data sources that route between pools are left alone by
+     * {@link DataSourceConfig}, as a single limit over all of them would let one pool's load take the permits of the
+     * others.
+     */
+    static DataSource limited(Environment environment, ObjectProvider<MeterRegistry> meterRegistry, HikariDataSource pool) {
+        if (!environment.getRequiredProperty("app.datasource.concurrency-limit.enabled", Boolean.class)) {
+            return pool;
+        }
+        ConcurrencyLimitingDataSource limited = new ConcurrencyLimitingDataSource(pool,
+                environment.getRequiredProperty("app.datasource.concurrency-limit.max-concurrent", Integer.class),
+                environment.getRequiredProperty("app.datasource.concurrency-limit.acquire-timeout", Duration.class),
+                Tags.of("pool", pool.getPoolName()));
+        meterRegistry.ifAvailable(limited::bindTo);
+        return limited;
+    }
+}
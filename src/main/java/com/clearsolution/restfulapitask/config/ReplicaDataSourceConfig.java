@@ -0,0 +1,64 @@
+package com.clearsolution.restfulapitask.config;
+
+import com.clearsolution.restfulapitask.replica.ReadYourWritesFilter;
+import com.clearsolution.restfulapitask.replica.ReplicaRouter;
+import com.clearsolution.restfulapitask.replica.ReplicaRoutingDataSource;
+import com.clearsolution.restfulapitask.replica.ReplicaSelection;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the single auto-configured pool with the primary plus read replicas. Read-only transactions, which every
+ * lookup and search in the service layer runs in, are served by a replica; writes stay on the primary. The connection
+ * concurrency limit applies to each pool on its own.
+ */
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(name = "app.datasource.replicas.enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    public ReplicaRouter replicaRouter(DataSourceProperties properties, Environment environment,
+                                       ObjectProvider<MeterRegistry> meterRegistry,
+                                       @Value("${app.datasource.replicas.urls}") List<String> urls,
+                                       @Value("${app.datasource.replicas.selection}") ReplicaSelection selection,
+                                       @Value("${app.datasource.replicas.max-lag}") Duration maxLag,
+                                       @Value("${app.datasource.replicas.lag-query}") String lagQuery,
+                                       @Value("${app.datasource.replicas.check-interval}") Duration checkInterval) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < urls.size(); i++) {
+            String name = "replica-" + i;
+            replicas.put(name, DataSourcePools.limited(environment, meterRegistry,
+                    DataSourcePools.pool(properties, environment, meterRegistry, name, urls.get(i))));
+        }
+        DataSource primary = DataSourcePools.limited(environment, meterRegistry,
+                DataSourcePools.pool(properties, environment, meterRegistry, "primary", properties.determineUrl()));
+        return new ReplicaRouter(primary, replicas, selection, maxLag, lagQuery, checkInterval);
+    }
+
+    @Bean
+    public DataSource dataSource(ReplicaRouter replicaRouter) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(replicaRouter.primary());
+        dataSource.setReadOnlyDataSource(new ReplicaRoutingDataSource(replicaRouter));
+        return dataSource;
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(@Value("${app.datasource.replicas.max-lag}") Duration maxLag) {
+        return new ReadYourWritesFilter(maxLag);
+    }
+}
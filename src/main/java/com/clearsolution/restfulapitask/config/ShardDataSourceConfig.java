@@ -0,0 +1,72 @@
+package com.clearsolution.restfulapitask.config;
+
+import com.clearsolution.restfulapitask.shard.ShardIdGenerator;
+import com.clearsolution.restfulapitask.shard.ShardRouter;
+import com.clearsolution.restfulapitask.shard.ShardRoutingDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the single auto-configured pool with one pool per shard, see {@link ShardRouter}. The data source bean
+ * routes to the shard bound to the current thread. The connection concurrency limit applies to each shard's pool on
+ * its own.
+ */
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(name = "app.sharding.enabled", havingValue = "true")
+public class ShardDataSourceConfig {
+
+    @Bean
+    public ShardRouter shardRouter(DataSourceProperties properties, Environment environment,
+                                   ObjectProvider<MeterRegistry> meterRegistry,
+                                   @Value("${app.sharding.urls}") List<String> urls,
+                                   @Value("${app.sharding.node-id}") int nodeId,
+                                   @Value("${app.datasource.replicas.enabled}") boolean replicasEnabled,
+                                   @Value("${app.search.birthday-index.enabled}") boolean birthdayIndexEnabled) {
+        if (replicasEnabled || birthdayIndexEnabled) {
+            // Both read the whole table through the one data source
+            throw new IllegalStateException("Sharding cannot be combined with read replicas or the birthday index");
+        }
+        List<DataSource> shards = new ArrayList<>(urls.size());
+        for (int i = 0; i < urls.size(); i++) {
+            shards.add(DataSourcePools.limited(environment, meterRegistry,
+                    DataSourcePools.pool(properties, environment, meterRegistry, "shard-" + i, urls.get(i))));
+        }
+        return new ShardRouter(shards, new ShardIdGenerator(nodeId));
+    }
+
+    @Bean
+    public DataSource dataSource(ShardRouter shardRouter) {
+        return new ShardRoutingDataSource(shardRouter);
+    }
+
+    /**
+     * Flyway is set up with the data source bean, which only reaches shard 0 at startup; every shard is migrated the
+     * same way.
+     */
+    @Bean
+    public FlywayMigrationStrategy shardMigrationStrategy(ShardRouter shardRouter) {
+        return flyway -> {
+            for (int shard = 0; shard < shardRouter.size(); shard++) {
+                Flyway.configure()
+                        .configuration(flyway.getConfiguration())
+                        .dataSource(shardRouter.shard(shard))
+                        .load()
+                        .migrate();
+            }
+        };
+    }
+}
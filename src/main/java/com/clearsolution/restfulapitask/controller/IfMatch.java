@@ -0,0 +1,69 @@
+package com.clearsolution.restfulapitask.controller;
+
+import com.clearsolution.restfulapitask.exception.MalformedIfMatchException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An {@code If-Match} header, {@code *} or a comma-separated list of ETags as in RFC 9110, read against the user
+ * versions the controllers send as ETags. ETags are compared strongly: weak ones and ones that are not versions of ours
+ * never match, so they are left out of {@link #versions}.
+ *
+ * @param any      whether the header is {@code *}, which matches any current version
+ * @param versions the versions the header lists otherwise
+ */
+record IfMatch(boolean any, List<Long> versions) {
+
+    /**
+     * @return {@code null} when the header is absent
+     * @throws MalformedIfMatchException if the header is neither {@code *} nor a list of quoted ETags
+     */
+    static IfMatch parse(String header) {
+        if (header == null || header.isBlank()) {
+            return null;
+        }
+        if (header.trim().equals("*")) {
+            return new IfMatch(true, List.of());
+        }
+        List<Long> versions = new ArrayList<>();
+        for (String eTag : eTags(header)) {
+            if (!eTag.startsWith("W/") && eTag.matches("\"[0-9]{1,18}\"")) {
+                versions.add(Long.valueOf(eTag.substring(1, eTag.length() - 1)));
+            }
+        }
+        return new IfMatch(false, List.copyOf(versions));
+    }
+
+    /**
+     * Splits a list of entity tags, {@code [W/]"opaque"} each; commas inside the quotes belong to the tag.
+     */
+    private static List<String> eTags(String header) {
+        List<String> eTags = new ArrayList<>();
+        int i = 0;
+        while (i < header.length()) {
+            char c = header.charAt(i);
+            if (c == ',' || c == ' ' || c == '\t') {
+                i++;
+                continue;
+            }
+            int start = i;
+            if (header.startsWith("W/", i)) {
+                i += 2;
+            }
+            int close = i < header.length() && header.charAt(i) == '"' ? header.indexOf('"', i + 1) : -1;
+            if (close < 0) {
+                throw new MalformedIfMatchException("If-Match must be * or a list of quoted ETags: " + header);
+            }
+            i = close + 1;
+            while (i < header.length() && (header.charAt(i) == ' ' || header.charAt(i) == '\t')) {
+                i++;
+            }
+            if (i < header.length() && header.charAt(i) != ',') {
+                throw new MalformedIfMatchException("If-Match must be * or a list of quoted ETags: " + header);
+            }
+            eTags.add(header.substring(start, close + 1));
+        }
+        return eTags;
+    }
+}
@@ -0,0 +1,142 @@
+package com.clearsolution.restfulapitask.controller;
+
+import com.clearsolution.restfulapitask.data.BatchItemResult;
+import com.clearsolution.restfulapitask.data.CursorPage;
+import com.clearsolution.restfulapitask.data.DataContainer;
+import com.clearsolution.restfulapitask.exception.UserNotFoundException;
+import com.clearsolution.restfulapitask.exception.UserVersionMismatchException;
+import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.service.ReactiveUserService;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The {@link UserController} API on WebFlux, active with the {@code reactive} profile. Request and response
+ * bodies are identical, ETags and {@code If-Match} included; {@code /search/stream} is written as rows arrive from the
+ * database.
+ */
+@RestController
+@RequestMapping("/v1/api/users")
+@Validated
+@Profile("reactive")
+public class ReactiveUserController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveUserController.class);
+
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BATCH_SIZE = 10000;
+
+    private final ReactiveUserService userService;
+
+    public ReactiveUserController(ReactiveUserService userService) {
+        this.userService = userService;
+    }
+
+    @PostMapping("/create")
+    public Mono<ResponseEntity<DataContainer<User>>> create(@Valid @RequestBody User user) {
+        logger.info("Creating user");
+        logger.debug("Creating user: {}", user);
+        return userService.createUser(user)
+                .map(created -> withETag(ResponseEntity.status(HttpStatus.CREATED), created).body(new DataContainer<>(created)));
+    }
+
+    @PostMapping("/batch")
+    public Mono<ResponseEntity<DataContainer<List<BatchItemResult>>>> createBatch(@RequestBody @Size(min = 1, max = MAX_BATCH_SIZE) List<User> users) {
+        logger.info("Creating users batch of {}", users.size());
+        return userService.createUsers(users).collectList()
+                .map(results -> ResponseEntity.ok(new DataContainer<>(results)));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<DataContainer<User>>> get(@PathVariable Long id) {
+        logger.info("Getting user with ID {}", id);
+        return userService.getUser(id).map(user -> withETag(ResponseEntity.ok(), user).body(new DataContainer<>(user)));
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<DataContainer<User>>> update(@PathVariable Long id, @Valid @RequestBody User user,
+                                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        logger.info("Updating user with ID {}", id);
+        return ifMatch(id, ifMatch, expectedVersion -> userService.updateUser(id, user, expectedVersion))
+                .map(updatedUser -> withETag(ResponseEntity.ok(), updatedUser).body(new DataContainer<>(updatedUser)));
+    }
+
+    @PatchMapping("/{id}")
+    public Mono<ResponseEntity<DataContainer<User>>> updateFields(@PathVariable Long id, @RequestBody User user,
+                                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        logger.info("Partial updating user with ID {}", id);
+        return ifMatch(id, ifMatch, expectedVersion -> userService.updateUsersFields(id, user, expectedVersion))
+                .map(updatedUser -> withETag(ResponseEntity.ok(), updatedUser).body(new DataContainer<>(updatedUser)));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> delete(@PathVariable Long id) {
+        logger.info("Deleting user with ID {}", id);
+        return userService.deleteUser(id).then(Mono.fromSupplier(() -> ResponseEntity.ok().build()));
+    }
+
+    @GetMapping("/search")
+    public Mono<ResponseEntity<DataContainer<List<User>>>> searchByBirthdayRange(@RequestParam LocalDate from, @RequestParam LocalDate to) {
+        logger.info("Searching users by birthday range from {} to {}", from, to);
+        return userService.findUsersByBirthdayRange(from, to).collectList()
+                .map(users -> ResponseEntity.ok(new DataContainer<>(users)));
+    }
+
+    @GetMapping("/search/page")
+    public Mono<ResponseEntity<CursorPage<List<User>>>> searchPageByBirthdayRange(@RequestParam LocalDate from, @RequestParam LocalDate to,
+                                                                                  @RequestParam(required = false) String cursor,
+                                                                                  @RequestParam(defaultValue = "100") @Min(1) @Max(MAX_PAGE_SIZE) int size) {
+        logger.info("Searching users page by birthday range from {} to {}", from, to);
+        return userService.findUsersByBirthdayRange(from, to, cursor, size).map(ResponseEntity::ok);
+    }
+
+    @GetMapping(value = "/search/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<User> streamByBirthdayRange(@RequestParam LocalDate from, @RequestParam LocalDate to) {
+        logger.info("Streaming users by birthday range from {} to {}", from, to);
+        return userService.findUsersByBirthdayRange(from, to);
+    }
+
+    private static ResponseEntity.BodyBuilder withETag(ResponseEntity.BodyBuilder response, User user) {
+        return user.getVersion() == null ? response : response.eTag(user.getVersion().toString());
+    }
+
+    /**
+     * Runs an update under an {@code If-Match} header the way {@link UserController} does.
+     */
+    private Mono<User> ifMatch(Long id, String header, Function<Long, Mono<User>> update) {
+        IfMatch ifMatch = IfMatch.parse(header);
+        if (ifMatch == null) {
+            return update.apply(null);
+        }
+        if (ifMatch.any()) {
+            return update.apply(null).onErrorMap(UserNotFoundException.class,
+                    e -> new UserVersionMismatchException("User with ID " + id + " does not exist"));
+        }
+        List<Long> versions = ifMatch.versions();
+        if (versions.isEmpty()) {
+            return Mono.error(new UserVersionMismatchException("User was modified by another request"));
+        }
+        if (versions.size() == 1) {
+            return update.apply(versions.get(0));
+        }
+        return userService.getUser(id)
+                .flatMap(current -> update.apply(versions.contains(current.getVersion()) ? current.getVersion() : versions.get(0)));
+    }
+}
@@ -1,52 +1,195 @@
 package com.clearsolution.restfulapitask.controller;
 
+import com.clearsolution.restfulapitask.data.BatchItemResult;
+import com.clearsolution.restfulapitask.cache.BirthdaySearchCache;
+import com.clearsolution.restfulapitask.data.BirthdayCount;
+import com.clearsolution.restfulapitask.data.BirthdayGrouping;
+import com.clearsolution.restfulapitask.data.BirthdayRange;
+import com.clearsolution.restfulapitask.data.CursorPage;
 import com.clearsolution.restfulapitask.data.DataContainer;
+import com.clearsolution.restfulapitask.data.ImportFormat;
+import com.clearsolution.restfulapitask.data.ImportSummary;
+import com.clearsolution.restfulapitask.data.IngestStatus;
+import com.clearsolution.restfulapitask.events.UserEventLog;
+import com.clearsolution.restfulapitask.events.UserEventStreams;
+import com.clearsolution.restfulapitask.exception.MalformedIfMatchException;
+import com.clearsolution.restfulapitask.exception.UserNotFoundException;
+import com.clearsolution.restfulapitask.exception.UserVersionMismatchException;
+import com.clearsolution.restfulapitask.ingest.UserIngestQueue;
 import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.model.UserField;
+import com.clearsolution.restfulapitask.service.UserExportService;
+import com.clearsolution.restfulapitask.service.UserImportService;
 import com.clearsolution.restfulapitask.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StringUtils;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/v1/api/users")
 @Validated
+@Profile("!reactive")
 public class UserController {
 
     private static final Logger logger = LoggerFactory.getLogger(UserController.class);
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BATCH_SIZE = 10000;
+    private static final int MAX_UPCOMING_DAYS = 366;
+    private static final String TEXT_CSV_VALUE = "text/csv";
+    private static final int MAX_EVENT_WAIT_SECONDS = 30;
+    static final String EVENT_SEQUENCE_HEADER = UserEventStreams.SEQUENCE_HEADER;
+
     private final UserService userService;
+    private final UserImportService userImportService;
+    private final UserExportService userExportService;
+    private final UserIngestQueue userIngestQueue;
+    private final BirthdaySearchCache birthdaySearchCache;
+    private final UserEventLog userEventLog;
+    private final UserEventStreams userEventStreams;
+    private final ObjectMapper objectMapper;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, UserImportService userImportService, UserExportService userExportService,
+                          UserIngestQueue userIngestQueue, BirthdaySearchCache birthdaySearchCache, UserEventLog userEventLog,
+                          UserEventStreams userEventStreams, ObjectMapper objectMapper) {
         this.userService = userService;
+        this.userImportService = userImportService;
+        this.userExportService = userExportService;
+        this.userIngestQueue = userIngestQueue;
+        this.birthdaySearchCache = birthdaySearchCache;
+        this.userEventLog = userEventLog;
+        this.userEventStreams = userEventStreams;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping("/create")
-    public ResponseEntity<DataContainer<User>> create(@Valid @RequestBody User user) {
-        logger.info("Creating user: {}", user);
+    public ResponseEntity<DataContainer<?>> create(@Valid @RequestBody User user) {
+        logger.info("Creating user");
+        logger.debug("Creating user: {}", user);
+        if (userIngestQueue.isEnabled()) {
+            UUID trackingId = userIngestQueue.submit(user);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/v1/api/users/create/status/" + trackingId))
+                    .body(new DataContainer<>(IngestStatus.queued(trackingId)));
+        }
         userService.createUser(user);
-        return ResponseEntity.status(HttpStatus.CREATED).body(new DataContainer<>(user));
+        return withETag(ResponseEntity.status(HttpStatus.CREATED), user).body(new DataContainer<>(user));
+    }
+
+    @GetMapping("/create/status/{trackingId}")
+    public ResponseEntity<DataContainer<IngestStatus>> createStatus(@PathVariable UUID trackingId) {
+        return ResponseEntity.ok(new DataContainer<>(userIngestQueue.status(trackingId)));
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<DataContainer<List<BatchItemResult>>> createBatch(@RequestBody @Size(min = 1, max = MAX_BATCH_SIZE) List<User> users) {
+        logger.info("Creating users batch of {}", users.size());
+        List<BatchItemResult> results = userService.createUsers(users);
+        return ResponseEntity.ok(new DataContainer<>(results));
+    }
+
+    /**
+     * Bulk import of a CSV upload with a header line, e.g. {@code email,firstName,lastName,birthday}. The body is read
+     * as it arrives; rejected rows are reported with their line numbers.
+     */
+    @PostMapping(value = "/import", consumes = TEXT_CSV_VALUE)
+    public ResponseEntity<DataContainer<ImportSummary>> importCsv(InputStream body) {
+        logger.info("Importing users from CSV");
+        return ResponseEntity.ok(new DataContainer<>(userImportService.importUsers(body, ImportFormat.CSV)));
+    }
+
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<DataContainer<ImportSummary>> importNdjson(InputStream body) {
+        logger.info("Importing users from NDJSON");
+        return ResponseEntity.ok(new DataContainer<>(userImportService.importUsers(body, ImportFormat.NDJSON)));
+    }
+
+    /**
+     * The whole table as a download, NDJSON unless {@code format=CSV}. Rows are written as they are read, so the
+     * response is sent chunked and an error after the first rows can only cut it short.
+     */
+    @GetMapping("/export")
+    public void export(@RequestParam(defaultValue = "NDJSON") ImportFormat format, HttpServletResponse response) throws IOException {
+        logger.info("Exporting users as {}", format);
+        boolean csv = format == ImportFormat.CSV;
+        response.setContentType(csv ? TEXT_CSV_VALUE : MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(csv ? "users.csv" : "users.ndjson").build().toString());
+        userExportService.exportUsers(response.getOutputStream(), format);
+    }
+
+    /**
+     * Answers {@code If-None-Match} with {@code 304 Not Modified} when the ETag still matches; the check itself is
+     * done by Spring MVC for GET responses carrying an ETag.
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<DataContainer<?>> get(@PathVariable Long id, @RequestParam(required = false) String fields) {
+        logger.info("Getting user with ID {}", id);
+        if (fields != null) {
+            // A projection only carries an ETag when the client selected the version
+            Map<String, Object> user = userService.getUser(id, UserField.parse(fields));
+            Object version = user.get(UserField.VERSION.attribute());
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            return (version == null ? response : response.eTag(version.toString())).body(new DataContainer<>(user));
+        }
+        User user = userService.getUser(id);
+        return withETag(ResponseEntity.ok(), user).body(new DataContainer<>(user));
+    }
+
+    @GetMapping("/by-email")
+    public ResponseEntity<DataContainer<User>> getByEmail(@RequestParam @Email String email) {
+        logger.info("Getting user by email");
+        User user = userService.getUserByEmail(email);
+        return withETag(ResponseEntity.ok(), user).body(new DataContainer<>(user));
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<DataContainer<User>> update(@PathVariable Long id, @Valid @RequestBody User user) {
+    public ResponseEntity<DataContainer<User>> update(@PathVariable Long id, @Valid @RequestBody User user,
+                                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         logger.info("Updating user with ID {}", id);
-        User updatedUser = userService.updateUser(id, user);
-        return ResponseEntity.ok(new DataContainer<>(updatedUser));
+        User updatedUser = ifMatch(id, ifMatch, expectedVersion -> userService.updateUser(id, user, expectedVersion));
+        return withETag(ResponseEntity.ok(), updatedUser).body(new DataContainer<>(updatedUser));
     }
 
     @PatchMapping("/{id}")
-    public ResponseEntity<DataContainer<User>> updateFields(@PathVariable Long id, @RequestBody User user) {
+    public ResponseEntity<DataContainer<User>> updateFields(@PathVariable Long id, @RequestBody User user,
+                                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         logger.info("Partial updating user with ID {}", id);
-        User updatedUser = userService.updateUsersFields(id, user);
-        return ResponseEntity.ok(new DataContainer<>(updatedUser));
+        User updatedUser = ifMatch(id, ifMatch, expectedVersion -> userService.updateUsersFields(id, user, expectedVersion));
+        return withETag(ResponseEntity.ok(), updatedUser).body(new DataContainer<>(updatedUser));
     }
 
     @DeleteMapping("/{id}")
@@ -56,10 +199,150 @@ public class UserController {
         return ResponseEntity.ok().build();
     }
 
+    /**
+     * With {@code fields}, e.g. {@code fields=email,birthday}, only those columns are selected and returned.
+     * <p>
+     * A JSON response for the whole users is serialized once and the bytes are shared with identical requests running
+     * at the same time; other formats go through the message converters as usual.
+     */
     @GetMapping("/search")
-    public ResponseEntity<DataContainer<List<User>>> searchByBirthdayRange(@RequestParam LocalDate from, @RequestParam LocalDate to) {
+    public ResponseEntity<?> searchByBirthdayRange(@RequestParam LocalDate from, @RequestParam LocalDate to,
+                                                   @RequestParam(required = false) String fields,
+                                                   @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         logger.info("Searching users by birthday range from {} to {}", from, to);
+        if (fields != null) {
+            return ResponseEntity.ok(new DataContainer<>(userService.findUsersByBirthdayRange(from, to, UserField.parse(fields))));
+        }
+        if (acceptsJson(accept)) {
+            byte[] body = birthdaySearchCache.getResponse(new BirthdayRange(from, to), () -> {
+                try {
+                    return objectMapper.writeValueAsBytes(new DataContainer<>(userService.findUsersByBirthdayRange(from, to)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+        }
         List<User> users = userService.findUsersByBirthdayRange(from, to);
         return ResponseEntity.ok(new DataContainer<>(users));
     }
-}
\ No newline at end of file
+
+    @GetMapping("/search/page")
+    public ResponseEntity<CursorPage<List<User>>> searchPageByBirthdayRange(@RequestParam LocalDate from, @RequestParam LocalDate to,
+                                                                            @RequestParam(required = false) String cursor,
+                                                                            @RequestParam(defaultValue = "100") @Min(1) @Max(MAX_PAGE_SIZE) int size) {
+        logger.info("Searching users page by birthday range from {} to {}", from, to);
+        return ResponseEntity.ok(userService.findUsersByBirthdayRange(from, to, cursor, size));
+    }
+
+    @GetMapping("/birthdays/upcoming")
+    public ResponseEntity<DataContainer<List<User>>> searchUpcomingBirthdays(@RequestParam(defaultValue = "7") @Min(0) @Max(MAX_UPCOMING_DAYS) int days) {
+        logger.info("Searching users with birthdays in the next {} days", days);
+        List<User> users = userService.findUsersWithUpcomingBirthdays(LocalDate.now(), days);
+        return ResponseEntity.ok(new DataContainer<>(users));
+    }
+
+    /**
+     * Counts instead of users, e.g. {@code groupBy=MONTH} for one entry per month of the range that has birthdays.
+     */
+    @GetMapping("/stats/birthdays")
+    public ResponseEntity<DataContainer<List<BirthdayCount>>> countByBirthday(@RequestParam LocalDate from, @RequestParam LocalDate to,
+                                                                              @RequestParam(defaultValue = "YEAR") BirthdayGrouping groupBy) {
+        logger.info("Counting users by birthday {} from {} to {}", groupBy, from, to);
+        return ResponseEntity.ok(new DataContainer<>(userService.countUsersByBirthday(from, to, groupBy)));
+    }
+
+    @GetMapping(value = "/search/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void streamByBirthdayRange(@RequestParam LocalDate from, @RequestParam LocalDate to,
+                                      HttpServletResponse response) throws IOException {
+        logger.info("Streaming users by birthday range from {} to {}", from, to);
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        OutputStream out = response.getOutputStream();
+        userService.streamUsersByBirthdayRange(from, to, user -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(user));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        out.flush();
+    }
+
+    /**
+     * Long poll for user changes: the events following {@code after} as NDJSON as soon as there is one, or an empty
+     * body once {@code timeout} seconds pass. Without {@code after} only changes from now on are returned. The
+     * {@value #EVENT_SEQUENCE_HEADER} header is the {@code after} of the next poll. A position the event buffer no
+     * longer reaches is answered with {@code 410 Gone}, and the consumer has to reload the users.
+     */
+    @GetMapping(value = "/events", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public DeferredResult<ResponseEntity<String>> pollEvents(@RequestParam(required = false) Long after,
+                                                             @RequestParam(defaultValue = "500") @Min(1) @Max(UserEventStreams.MAX_BATCH) int limit,
+                                                             @RequestParam(defaultValue = "" + MAX_EVENT_WAIT_SECONDS) @Min(0) @Max(MAX_EVENT_WAIT_SECONDS) int timeout) {
+        return userEventStreams.poll(after == null ? userEventLog.lastSequence() : after, limit, Duration.ofSeconds(timeout));
+    }
+
+    /**
+     * User changes as Server-Sent Events, each with its sequence as {@code id} and its type as event name. Resumes
+     * after {@code Last-Event-ID}, or {@code after}, and otherwise starts with the changes from now on. A consumer
+     * that falls behind the event buffer gets an {@code expired} event and the stream ends; it has to reload the users.
+     */
+    @GetMapping(value = "/events/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents(@RequestParam(required = false) Long after,
+                                   @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return userEventStreams.stream(lastEventId != null ? lastEventId : after != null ? after : userEventLog.lastSequence());
+    }
+
+    /**
+     * Whether JSON is what content negotiation would pick, i.e. the most preferred accepted type allows it.
+     */
+    private static boolean acceptsJson(String accept) {
+        if (!StringUtils.hasText(accept)) {
+            return true;
+        }
+        try {
+            List<MediaType> accepted = MediaType.parseMediaTypes(accept);
+            MimeTypeUtils.sortBySpecificity(accepted);
+            return !accepted.isEmpty() && accepted.get(0).isCompatibleWith(MediaType.APPLICATION_JSON);
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    private static ResponseEntity.BodyBuilder withETag(ResponseEntity.BodyBuilder response, User user) {
+        return user.getVersion() == null ? response : response.eTag(user.getVersion().toString());
+    }
+
+    /**
+     * Runs an update under an {@code If-Match} header, see {@link IfMatch}. {@code *} lets the update through as long
+     * as the user exists. A list lets it through when the user is at one of the versions; the update is applied
+     * expecting the version the user was read at, so a change in between fails the precondition.
+     *
+     * @throws MalformedIfMatchException    if the header is not valid
+     * @throws UserVersionMismatchException if no version in the header is current
+     */
+    private User ifMatch(Long id, String header, Function<Long, User> update) {
+        IfMatch ifMatch = IfMatch.parse(header);
+        if (ifMatch == null) {
+            return update.apply(null);
+        }
+        if (ifMatch.any()) {
+            try {
+                return update.apply(null);
+            } catch (UserNotFoundException e) {
+                throw new UserVersionMismatchException("User with ID " + id + " does not exist");
+            }
+        }
+        List<Long> versions = ifMatch.versions();
+        if (versions.isEmpty()) {
+            throw new UserVersionMismatchException("User was modified by another request");
+        }
+        if (versions.size() > 1) {
+            Long current = userService.getUser(id).getVersion();
+            if (versions.contains(current)) {
+                return update.apply(current);
+            }
+        }
+        return update.apply(versions.get(0));
+    }
+}
@@ -0,0 +1,14 @@
+package com.clearsolution.restfulapitask.data;
+
+import java.util.List;
+
+public record BatchItemResult(int index, boolean created, Long id, List<String> errors) {
+
+    public static BatchItemResult created(int index, Long id) {
+        return new BatchItemResult(index, true, id, List.of());
+    }
+
+    public static BatchItemResult rejected(int index, List<String> errors) {
+        return new BatchItemResult(index, false, null, errors);
+    }
+}
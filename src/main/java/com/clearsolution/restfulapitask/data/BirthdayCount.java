@@ -0,0 +1,8 @@
+package com.clearsolution.restfulapitask.data;
+
+/**
+ * Number of users in one group of a birthday aggregation: a year such as {@code 1990}, a month such as
+ * {@code 1990-05}, or an age range such as {@code 18-27}.
+ */
+public record BirthdayCount(String group, long count) {
+}
@@ -0,0 +1,8 @@
+package com.clearsolution.restfulapitask.data;
+
+public enum BirthdayGrouping {
+    YEAR,
+    MONTH,
+    // Completed years today, in buckets starting at the legal age
+    AGE
+}
@@ -0,0 +1,10 @@
+package com.clearsolution.restfulapitask.data;
+
+import java.time.LocalDate;
+
+public record BirthdayRange(LocalDate from, LocalDate to) {
+
+    public boolean contains(LocalDate birthday) {
+        return !birthday.isBefore(from) && !birthday.isAfter(to);
+    }
+}
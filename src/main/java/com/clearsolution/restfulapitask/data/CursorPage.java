@@ -0,0 +1,4 @@
+package com.clearsolution.restfulapitask.data;
+
+public record CursorPage<DATA>(DATA data, String nextCursor) {
+}
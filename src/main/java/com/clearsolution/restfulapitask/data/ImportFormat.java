@@ -0,0 +1,11 @@
+package com.clearsolution.restfulapitask.data;
+
+/**
+ * Line formats of {@code POST /import} and {@code GET /export}.
+ */
+public enum ImportFormat {
+    // Header line with the JSON property names of User, then one user per line
+    CSV,
+    // One User JSON object per line
+    NDJSON
+}
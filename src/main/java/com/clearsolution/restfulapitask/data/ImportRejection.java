@@ -0,0 +1,9 @@
+package com.clearsolution.restfulapitask.data;
+
+import java.util.List;
+
+/**
+ * A rejected row of an import and why, with {@code line} counted from 1 including any header line.
+ */
+public record ImportRejection(long line, List<String> errors) {
+}
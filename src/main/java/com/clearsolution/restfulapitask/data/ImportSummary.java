@@ -0,0 +1,9 @@
+package com.clearsolution.restfulapitask.data;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk import. {@code rejections} lists the first rejected rows; {@code rejected} counts all of them.
+ */
+public record ImportSummary(long imported, long rejected, List<ImportRejection> rejections) {
+}
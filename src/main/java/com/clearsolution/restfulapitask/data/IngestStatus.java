@@ -0,0 +1,28 @@
+package com.clearsolution.restfulapitask.data;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Outcome of a user create accepted in asynchronous mode, looked up by its tracking id.
+ */
+public record IngestStatus(UUID trackingId, State state, Long userId, List<String> errors) {
+
+    public enum State {
+        QUEUED, CREATED, REJECTED, FAILED
+    }
+
+    public static IngestStatus queued(UUID trackingId) {
+        return new IngestStatus(trackingId, State.QUEUED, null, List.of());
+    }
+
+    public static IngestStatus of(UUID trackingId, BatchItemResult result) {
+        return result.created()
+                ? new IngestStatus(trackingId, State.CREATED, result.id(), List.of())
+                : new IngestStatus(trackingId, State.REJECTED, null, result.errors());
+    }
+
+    public static IngestStatus failed(UUID trackingId, String error) {
+        return new IngestStatus(trackingId, State.FAILED, null, List.of(error));
+    }
+}
@@ -0,0 +1,21 @@
+package com.clearsolution.restfulapitask.data;
+
+import com.clearsolution.restfulapitask.model.User;
+
+import java.time.Instant;
+
+/**
+ * One committed change to a user. Sequence numbers increase by one per event; {@code user} is the state after the
+ * change and {@code null} for deletes.
+ * <p>
+ * Events are appended as their transactions commit, so two quick changes to the same user can appear in the opposite
+ * order of their commits. {@code version} is the user's version after the change: a consumer keeps a change only when
+ * it is newer than the version it holds, and treats a delete, which has no version, as final since ids are never
+ * reused.
+ */
+public record UserChangeEvent(long sequence, Type type, Long userId, Long version, User user, Instant timestamp) {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+}
@@ -0,0 +1,177 @@
+package com.clearsolution.restfulapitask.events;
+
+import com.clearsolution.restfulapitask.data.UserChangeEvent;
+import com.clearsolution.restfulapitask.exception.EventsExpiredException;
+import com.clearsolution.restfulapitask.model.User;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded in-memory log of user changes for consumers that keep their own copy of the users. Changes made in a
+ * transaction are appended once it commits, so a rolled back write is never seen; every event gets the next sequence
+ * number and the oldest events are overwritten once the buffer is full. Commits racing on the same user can append in
+ * the opposite order, which consumers sort out with {@link UserChangeEvent#version()}.
+ * <p>
+ * A consumer reads from the last sequence number it has seen. When that position is no longer in the buffer, because
+ * the consumer fell behind or the application restarted, {@link #read} fails with {@link EventsExpiredException} and
+ * the consumer has to reload its data. Sequences start from the startup time in microseconds, so positions handed out
+ * before a restart are below the buffer of the new instance instead of pointing at unrelated events. The log is per
+ * instance; a consumer has to stay with the instance it reads from.
+ * <p>
+ * Reads never wait. Consumers that want the next change register a listener, which is called after every append.
+ */
+@Component
+@Profile("!reactive")
+public class UserEventLog implements MeterBinder {
+
+    private final UserChangeEvent[] buffer;
+    private final long startSequence;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    // Sequence of the newest event, startSequence while there is none
+    private long lastSequence;
+
+    @Autowired
+    public UserEventLog(@Value("${app.events.buffer-size}") int bufferSize) {
+        this(bufferSize, TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()));
+    }
+
+    UserEventLog(int bufferSize, long startSequence) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Event buffer size must be positive");
+        }
+        this.buffer = new UserChangeEvent[bufferSize];
+        this.startSequence = startSequence;
+        this.lastSequence = startSequence;
+    }
+
+    public void created(User user) {
+        publish(UserChangeEvent.Type.CREATED, List.of(User.copyOf(user)));
+    }
+
+    public void created(List<User> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        List<User> snapshots = new ArrayList<>(users.size());
+        users.forEach(user -> snapshots.add(User.copyOf(user)));
+        publish(UserChangeEvent.Type.CREATED, snapshots);
+    }
+
+    public void updated(User user) {
+        publish(UserChangeEvent.Type.UPDATED, List.of(User.copyOf(user)));
+    }
+
+    public void deleted(Long userId) {
+        User deleted = new User();
+        deleted.setId(userId);
+        publish(UserChangeEvent.Type.DELETED, List.of(deleted));
+    }
+
+    /**
+     * The sequence of the newest event; reading after it waits for the next change.
+     */
+    public long lastSequence() {
+        lock.lock();
+        try {
+            return lastSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Up to {@code limit} events following {@code after}, oldest first; empty when there are none yet.
+     *
+     * @throws EventsExpiredException if events following {@code after} were already overwritten, or this log never
+     *                                handed out {@code after}
+     */
+    public List<UserChangeEvent> read(long after, int limit) {
+        lock.lock();
+        try {
+            long oldest = Math.max(startSequence, lastSequence - buffer.length);
+            if (after < oldest || after > lastSequence) {
+                throw new EventsExpiredException("Events after " + after + " are no longer available, reload the users");
+            }
+            int count = (int) Math.min(limit, lastSequence - after);
+            List<UserChangeEvent> events = new ArrayList<>(count);
+            for (long sequence = after + 1; sequence <= after + count; sequence++) {
+                events.add(buffer[index(sequence)]);
+            }
+            return events;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Calls {@code listener} after every append, on the appending thread, which is often one that just committed a
+     * write; anything slower than scheduling work has to be handed off.
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("users.events.published", this, log -> log.lastSequence() - log.startSequence)
+                .description("User change events appended to the event log")
+                .register(registry);
+        Gauge.builder("users.events.listeners", listeners, List::size)
+                .description("Event consumers waiting for the next change")
+                .register(registry);
+    }
+
+    private void publish(UserChangeEvent.Type type, List<User> users) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    append(type, users);
+                }
+            });
+        } else {
+            append(type, users);
+        }
+    }
+
+    private void append(UserChangeEvent.Type type, List<User> users) {
+        Instant now = Instant.now();
+        lock.lock();
+        try {
+            for (User user : users) {
+                long sequence = ++lastSequence;
+                buffer[index(sequence)] = type == UserChangeEvent.Type.DELETED
+                        ? new UserChangeEvent(sequence, type, user.getId(), null, null, now)
+                        : new UserChangeEvent(sequence, type, user.getId(), user.getVersion(), user, now);
+            }
+        } finally {
+            lock.unlock();
+        }
+        listeners.forEach(Runnable::run);
+    }
+
+    private int index(long sequence) {
+        return (int) Math.floorMod(sequence, (long) buffer.length);
+    }
+}
@@ -0,0 +1,244 @@
+package com.clearsolution.restfulapitask.events;
+
+import com.clearsolution.restfulapitask.data.UserChangeEvent;
+import com.clearsolution.restfulapitask.exception.EventsExpiredException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Long polls and Server-Sent Event streams over the {@link UserEventLog}. Neither holds a request thread while it
+ * waits: the response is completed from a listener on the log once the next change is appended. Deliveries run on a
+ * pool of their own, one at a time per consumer, so a consumer on a slow connection holds up neither the write that
+ * appended the event nor the other consumers.
+ */
+@Component
+@Profile("!reactive")
+public class UserEventStreams implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserEventStreams.class);
+
+    public static final String SEQUENCE_HEADER = "X-Event-Sequence";
+    public static final int MAX_BATCH = 1000;
+
+    private final UserEventLog userEventLog;
+    private final ObjectMapper objectMapper;
+    private final Duration heartbeat;
+    private final Duration maxDuration;
+    // Platform threads: a delivery blocks while the response is written out to the client
+    private final ExecutorService deliveries = Executors.newCachedThreadPool(Thread.ofPlatform().name("user-events-", 0)
+            .daemon().factory());
+    private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("user-events-heartbeat").daemon().factory());
+
+    public UserEventStreams(UserEventLog userEventLog, ObjectMapper objectMapper,
+                            @Value("${app.events.stream.heartbeat}") Duration heartbeat,
+                            @Value("${app.events.stream.max-duration}") Duration maxDuration) {
+        this.userEventLog = userEventLog;
+        this.objectMapper = objectMapper;
+        this.heartbeat = heartbeat;
+        this.maxDuration = maxDuration;
+    }
+
+    /**
+     * The events following {@code after} as NDJSON as soon as there is one, or an empty body once {@code timeout}
+     * passes. The {@value #SEQUENCE_HEADER} header is the position to poll after next.
+     *
+     * @throws EventsExpiredException if {@code after} is no longer in the log
+     */
+    public DeferredResult<ResponseEntity<String>> poll(long after, int limit, Duration timeout) {
+        List<UserChangeEvent> events = userEventLog.read(after, limit);
+        DeferredResult<ResponseEntity<String>> result = new DeferredResult<>(timeout.toMillis(), () -> pollResponse(after, List.of()));
+        if (!events.isEmpty() || timeout.isZero()) {
+            result.setResult(pollResponse(after, events));
+            return result;
+        }
+        Subscription subscription = subscribe(() -> {
+            try {
+                List<UserChangeEvent> next = userEventLog.read(after, limit);
+                if (next.isEmpty()) {
+                    return true;
+                }
+                result.setResult(pollResponse(after, next));
+            } catch (EventsExpiredException e) {
+                result.setErrorResult(e);
+            }
+            return false;
+        });
+        result.onCompletion(subscription::close);
+        return result;
+    }
+
+    /**
+     * The events following {@code after} as they are appended, each with its sequence as {@code id} and its type as
+     * event name, and a comment every heartbeat while nothing changes. A consumer that falls behind the log gets an
+     * {@code expired} event and the stream ends. Streams end after {@code app.events.stream.max-duration}, after
+     * which EventSource clients reconnect from their last event on their own.
+     *
+     * @throws EventsExpiredException if {@code after} is no longer in the log
+     */
+    public SseEmitter stream(long after) {
+        // Reading once before the response starts lets an expired position still be answered with 410
+        List<UserChangeEvent> events = userEventLog.read(after, MAX_BATCH);
+        SseEmitter emitter = new SseEmitter(maxDuration.toMillis());
+        long[] position = {after};
+        if (!send(emitter, events, position)) {
+            return emitter;
+        }
+        Subscription subscription = subscribe(() -> {
+            try {
+                List<UserChangeEvent> next = userEventLog.read(position[0], MAX_BATCH);
+                return next.isEmpty() || send(emitter, next, position);
+            } catch (EventsExpiredException e) {
+                logger.warn("User change event stream expired after {}", position[0]);
+                try {
+                    emitter.send(SseEmitter.event().name("expired").data(e.getMessage()));
+                    emitter.complete();
+                } catch (IOException ignored) {
+                    // The client is gone as well
+                }
+                return false;
+            }
+        });
+        ScheduledFuture<?> heartbeatTask = heartbeats.scheduleWithFixedDelay(() -> subscription.execute(() -> {
+            try {
+                emitter.send(SseEmitter.event().comment(""));
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        }), heartbeat.toMillis(), heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+        emitter.onTimeout(emitter::complete);
+        emitter.onCompletion(() -> {
+            heartbeatTask.cancel(false);
+            subscription.close();
+        });
+        logger.info("Streaming user change events after {}", after);
+        return emitter;
+    }
+
+    @Override
+    public void close() {
+        heartbeats.shutdownNow();
+        deliveries.shutdownNow();
+    }
+
+    private Subscription subscribe(Delivery delivery) {
+        Subscription subscription = new Subscription(delivery);
+        userEventLog.addListener(subscription);
+        // Covers an append between the first read and the listener being added
+        subscription.run();
+        return subscription;
+    }
+
+    private ResponseEntity<String> pollResponse(long after, List<UserChangeEvent> events) {
+        StringBuilder body = new StringBuilder();
+        for (UserChangeEvent event : events) {
+            body.append(toJson(event)).append('\n');
+        }
+        long position = events.isEmpty() ? after : events.get(events.size() - 1).sequence();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(SEQUENCE_HEADER, String.valueOf(position))
+                .body(body.toString());
+    }
+
+    /**
+     * @return whether the stream is still open
+     */
+    private boolean send(SseEmitter emitter, List<UserChangeEvent> events, long[] position) {
+        try {
+            for (UserChangeEvent event : events) {
+                emitter.send(SseEmitter.event()
+                        .id(String.valueOf(event.sequence()))
+                        .name(event.type().name().toLowerCase())
+                        .data(toJson(event)));
+                position[0] = event.sequence();
+            }
+            return true;
+        } catch (IOException e) {
+            logger.debug("User change event stream closed by the client after {}", position[0]);
+            return false;
+        }
+    }
+
+    private String toJson(UserChangeEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Delivery {
+        /**
+         * @return whether the consumer wants further events
+         */
+        boolean deliver();
+    }
+
+    /**
+     * A consumer waiting on the log. Appends while a delivery is already pending are folded into it, as every delivery
+     * reads everything after the consumer's position anyway.
+     */
+    private final class Subscription implements Runnable {
+
+        private final Delivery delivery;
+        private final AtomicBoolean pending = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Subscription(Delivery delivery) {
+            this.delivery = delivery;
+        }
+
+        @Override
+        public void run() {
+            if (pending.compareAndSet(false, true)) {
+                execute(() -> {
+                    pending.set(false);
+                    return delivery.deliver();
+                });
+            }
+        }
+
+        void execute(Delivery task) {
+            try {
+                deliveries.execute(() -> {
+                    synchronized (this) {
+                        if (!closed && !task.deliver()) {
+                            close();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                close();
+            }
+        }
+
+        void close() {
+            closed = true;
+            userEventLog.removeListener(this);
+        }
+    }
+}
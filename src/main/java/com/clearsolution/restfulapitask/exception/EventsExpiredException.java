@@ -0,0 +1,8 @@
+package com.clearsolution.restfulapitask.exception;
+
+public class EventsExpiredException extends RuntimeException {
+
+    public EventsExpiredException(String message) {
+        super(message);
+    }
+}
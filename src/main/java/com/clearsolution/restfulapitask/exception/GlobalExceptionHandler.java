@@ -1,54 +1,140 @@
 package com.clearsolution.restfulapitask.exception;
 
 import com.clearsolution.restfulapitask.controller.UserController;
+import io.micrometer.core.instrument.Metrics;
 import jakarta.validation.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.support.WebExchangeBindException;
 
 @ControllerAdvice
 public class GlobalExceptionHandler {
     private static final Logger logger = LoggerFactory.getLogger(UserController.class);
+
     @ExceptionHandler(UserAgeUnacceptableException.class)
     public ResponseEntity<String> handleUserAgeUnacceptableException(UserAgeUnacceptableException ex) {
+        countRejection(ex);
         logger.error("User Age Unacceptable Exception: {}", ex.getMessage());
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
     }
 
     @ExceptionHandler(UserNotFoundException.class)
     public ResponseEntity<String> handleUserNotFoundException(UserNotFoundException ex) {
+        countRejection(ex);
         logger.error("User Not Found Exception: {}", ex.getMessage());
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
     }
 
+    @ExceptionHandler(UserVersionMismatchException.class)
+    public ResponseEntity<String> handleUserVersionMismatchException(UserVersionMismatchException ex) {
+        countRejection(ex);
+        logger.error("User Version Mismatch Exception: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(IngestStatusNotFoundException.class)
+    public ResponseEntity<String> handleIngestStatusNotFoundException(IngestStatusNotFoundException ex) {
+        countRejection(ex);
+        logger.error("Ingest Status Not Found Exception: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(IngestQueueFullException.class)
+    public ResponseEntity<String> handleIngestQueueFullException(IngestQueueFullException ex) {
+        countRejection(ex);
+        logger.error("Ingest Queue Full Exception: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ex.getMessage());
+    }
+
+    @ExceptionHandler(EventsExpiredException.class)
+    public ResponseEntity<String> handleEventsExpiredException(EventsExpiredException ex) {
+        countRejection(ex);
+        logger.error("Events Expired Exception: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.GONE).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(UnknownUserFieldException.class)
+    public ResponseEntity<String> handleUnknownUserFieldException(UnknownUserFieldException ex) {
+        countRejection(ex);
+        logger.error("Unknown User Field Exception: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(MalformedImportException.class)
+    public ResponseEntity<String> handleMalformedImportException(MalformedImportException ex) {
+        countRejection(ex);
+        logger.error("Malformed Import Exception: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(MalformedIfMatchException.class)
+    public ResponseEntity<String> handleMalformedIfMatchException(MalformedIfMatchException ex) {
+        countRejection(ex);
+        logger.error("Malformed If-Match Exception: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+    }
+
     @ExceptionHandler(WrongDateRangeException.class)
     public ResponseEntity<String> handleWrongDateRangeException(WrongDateRangeException ex) {
+        countRejection(ex);
         logger.error("Wrong Date Range Exception: {}", ex.getMessage());
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
     }
 
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<Object> handleIllegalArgumentException(IllegalArgumentException ex) {
+        countRejection(ex);
         logger.error("Illegal Argument Exception: {}", ex.getMessage());
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
     }
 
     @ExceptionHandler(ConstraintViolationException.class)
     public ResponseEntity<String> handleConstraintViolationException(ConstraintViolationException ex) {
+        countRejection(ex);
         logger.error("Constraint Violation Exception: {}", ex.getMessage());
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
     }
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<String> handleMethodArgumentNotValidException(MethodArgumentNotValidException ex) {
+        countRejection(ex);
         logger.error("Method Argument Not Valid Exception: {}", ex.getMessage());
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
     }
 
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<String> handleWebExchangeBindException(WebExchangeBindException ex) {
+        countRejection(ex);
+        logger.error("Web Exchange Bind Exception: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+    }
 
-}
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<String> handleDataIntegrityViolationException(DataIntegrityViolationException ex) {
+        countRejection(ex);
+        logger.error("Data Integrity Violation Exception: {}", ex.getMostSpecificCause().getMessage());
+        // The unique email index is the only constraint a valid request can break
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("Email is already in use");
+    }
+
+    @ExceptionHandler(CannotCreateTransactionException.class)
+    public ResponseEntity<String> handleCannotCreateTransactionException(CannotCreateTransactionException ex) {
+        countRejection(ex);
+        logger.error("Cannot Create Transaction Exception: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Database is busy, retry later");
+    }
 
+    private void countRejection(Exception ex) {
+        Metrics.counter("users.rejections", "exception", ex.getClass().getSimpleName()).increment();
+    }
+}
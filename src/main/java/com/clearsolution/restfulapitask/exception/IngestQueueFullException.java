@@ -0,0 +1,8 @@
+package com.clearsolution.restfulapitask.exception;
+
+public class IngestQueueFullException extends RuntimeException {
+
+    public IngestQueueFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.clearsolution.restfulapitask.exception;
+
+public class IngestStatusNotFoundException extends RuntimeException {
+
+    public IngestStatusNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.clearsolution.restfulapitask.exception;
+
+public class MalformedIfMatchException extends RuntimeException {
+
+    public MalformedIfMatchException(String message) {
+        super(message);
+    }
+}
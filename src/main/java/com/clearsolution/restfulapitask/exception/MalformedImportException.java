@@ -0,0 +1,8 @@
+package com.clearsolution.restfulapitask.exception;
+
+public class MalformedImportException extends RuntimeException {
+
+    public MalformedImportException(String message) {
+        super(message);
+    }
+}
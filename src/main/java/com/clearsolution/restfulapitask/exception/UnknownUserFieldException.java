@@ -0,0 +1,8 @@
+package com.clearsolution.restfulapitask.exception;
+
+public class UnknownUserFieldException extends RuntimeException {
+
+    public UnknownUserFieldException(String message) {
+        super(message);
+    }
+}
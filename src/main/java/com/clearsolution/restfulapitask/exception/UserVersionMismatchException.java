@@ -0,0 +1,8 @@
+package com.clearsolution.restfulapitask.exception;
+
+public class UserVersionMismatchException extends RuntimeException {
+
+    public UserVersionMismatchException(String message) {
+        super(message);
+    }
+}
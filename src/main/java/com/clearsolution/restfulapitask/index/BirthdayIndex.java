@@ -0,0 +1,344 @@
+package com.clearsolution.restfulapitask.index;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Optional in-memory index of user ids by birthday. Distinct epoch days are kept in a sorted {@code int[]}, each
+ * with a bucket of user ids sorted ascending, so a range lookup is a binary search followed by a sequential copy in
+ * {@code (birthday, id)} order. A primitive id-to-day map lets updates and deletes find the old bucket without
+ * knowing the previous birthday.
+ * <p>
+ * The index only sees writes made through this instance, so it is meant for single-writer deployments.
+ */
+@Component
+public class BirthdayIndex implements MeterBinder {
+
+    private static final int MISSING = Integer.MIN_VALUE;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final boolean enabled;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongIntHashMap dayById = new LongIntHashMap();
+    private volatile boolean ready;
+
+    private int[] days = new int[INITIAL_CAPACITY];
+    private long[][] buckets = new long[INITIAL_CAPACITY][];
+    private int[] bucketSizes = new int[INITIAL_CAPACITY];
+    private int dayCount;
+
+    public BirthdayIndex(@Value("${app.search.birthday-index.enabled}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * True once the index has been fully built and may answer range queries.
+     */
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    public void markReady() {
+        ready = true;
+    }
+
+    public void put(long userId, LocalDate birthday) {
+        if (!enabled) {
+            return;
+        }
+        int day = Math.toIntExact(birthday.toEpochDay());
+        lock.writeLock().lock();
+        try {
+            int previous = dayById.put(userId, day);
+            if (previous == day) {
+                return;
+            }
+            if (previous != MISSING) {
+                removeFromBucket(previous, userId);
+            }
+            addToBucket(day, userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long userId) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            int previous = dayById.remove(userId);
+            if (previous != MISSING) {
+                removeFromBucket(previous, userId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of users born between {@code from} and {@code to} inclusive, ordered by birthday and id.
+     */
+    public long[] findIds(LocalDate from, LocalDate to) {
+        lock.readLock().lock();
+        try {
+            int start = lowerBound(Math.toIntExact(from.toEpochDay()));
+            int end = lowerBound(Math.toIntExact(to.toEpochDay()) + 1);
+            int total = 0;
+            for (int i = start; i < end; i++) {
+                total += bucketSizes[i];
+            }
+            long[] ids = new long[total];
+            int offset = 0;
+            for (int i = start; i < end; i++) {
+                System.arraycopy(buckets[i], 0, ids, offset, bucketSizes[i]);
+                offset += bucketSizes[i];
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of users born between {@code from} and {@code to} inclusive.
+     */
+    public int count(LocalDate from, LocalDate to) {
+        lock.readLock().lock();
+        try {
+            int end = lowerBound(Math.toIntExact(to.toEpochDay()) + 1);
+            int total = 0;
+            for (int i = lowerBound(Math.toIntExact(from.toEpochDay())); i < end; i++) {
+                total += bucketSizes[i];
+            }
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Passes every birthday between {@code from} and {@code to} inclusive with its number of users, in date order.
+     */
+    public void countByDay(LocalDate from, LocalDate to, ObjIntConsumer<LocalDate> consumer) {
+        lock.readLock().lock();
+        try {
+            int end = lowerBound(Math.toIntExact(to.toEpochDay()) + 1);
+            for (int i = lowerBound(Math.toIntExact(from.toEpochDay())); i < end; i++) {
+                consumer.accept(LocalDate.ofEpochDay(days[i]), bucketSizes[i]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return dayById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Approximate heap used by the index arrays, excluding object headers of the per-day buckets.
+     */
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = (long) days.length * Integer.BYTES + (long) bucketSizes.length * Integer.BYTES
+                    + (long) buckets.length * Long.BYTES + dayById.estimatedBytes();
+            for (int i = 0; i < dayCount; i++) {
+                bytes += (long) buckets[i].length * Long.BYTES;
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("users.birthday.index.size", this, BirthdayIndex::size)
+                .description("Users held in the in-memory birthday index")
+                .register(registry);
+        Gauge.builder("users.birthday.index.memory", this, BirthdayIndex::estimatedBytes)
+                .description("Approximate heap used by the in-memory birthday index")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private void addToBucket(int day, long userId) {
+        int position = lowerBound(day);
+        if (position == dayCount || days[position] != day) {
+            insertDay(position, day);
+        }
+        long[] bucket = buckets[position];
+        int size = bucketSizes[position];
+        // Ids mostly arrive in ascending order, so this is usually an append
+        int slot = size > 0 && bucket[size - 1] < userId ? size : insertionPoint(bucket, size, userId);
+        if (size == bucket.length) {
+            bucket = Arrays.copyOf(bucket, size * 2);
+            buckets[position] = bucket;
+        }
+        System.arraycopy(bucket, slot, bucket, slot + 1, size - slot);
+        bucket[slot] = userId;
+        bucketSizes[position] = size + 1;
+    }
+
+    private void removeFromBucket(int day, long userId) {
+        int position = lowerBound(day);
+        long[] bucket = buckets[position];
+        int size = bucketSizes[position];
+        int slot = Arrays.binarySearch(bucket, 0, size, userId);
+        System.arraycopy(bucket, slot + 1, bucket, slot, size - slot - 1);
+        bucketSizes[position] = size - 1;
+        if (size == 1) {
+            removeDay(position);
+        }
+    }
+
+    private void insertDay(int position, int day) {
+        if (dayCount == days.length) {
+            int capacity = days.length * 2;
+            days = Arrays.copyOf(days, capacity);
+            buckets = Arrays.copyOf(buckets, capacity);
+            bucketSizes = Arrays.copyOf(bucketSizes, capacity);
+        }
+        System.arraycopy(days, position, days, position + 1, dayCount - position);
+        System.arraycopy(buckets, position, buckets, position + 1, dayCount - position);
+        System.arraycopy(bucketSizes, position, bucketSizes, position + 1, dayCount - position);
+        days[position] = day;
+        buckets[position] = new long[4];
+        bucketSizes[position] = 0;
+        dayCount++;
+    }
+
+    private void removeDay(int position) {
+        System.arraycopy(days, position + 1, days, position, dayCount - position - 1);
+        System.arraycopy(buckets, position + 1, buckets, position, dayCount - position - 1);
+        System.arraycopy(bucketSizes, position + 1, bucketSizes, position, dayCount - position - 1);
+        dayCount--;
+        buckets[dayCount] = null;
+    }
+
+    private int lowerBound(int day) {
+        int low = 0;
+        int high = dayCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (days[middle] < day) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int insertionPoint(long[] bucket, int size, long userId) {
+        int slot = Arrays.binarySearch(bucket, 0, size, userId);
+        return slot < 0 ? -slot - 1 : slot;
+    }
+
+    /**
+     * Open-addressing map from non-zero user id to epoch day with linear probing and backward-shift deletion.
+     */
+    private static final class LongIntHashMap {
+
+        private static final long EMPTY = 0L;
+
+        private long[] keys = new long[1024];
+        private int[] values = new int[1024];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        long estimatedBytes() {
+            return (long) keys.length * (Long.BYTES + Integer.BYTES);
+        }
+
+        int put(long key, int value) {
+            int slot = slot(key);
+            while (keys[slot] != EMPTY) {
+                if (keys[slot] == key) {
+                    int previous = values[slot];
+                    values[slot] = value;
+                    return previous;
+                }
+                slot = (slot + 1) & (keys.length - 1);
+            }
+            keys[slot] = key;
+            values[slot] = value;
+            if (++size * 4 > keys.length * 3) {
+                resize();
+            }
+            return MISSING;
+        }
+
+        int remove(long key) {
+            int mask = keys.length - 1;
+            int slot = slot(key);
+            while (keys[slot] != key) {
+                if (keys[slot] == EMPTY) {
+                    return MISSING;
+                }
+                slot = (slot + 1) & mask;
+            }
+            int previous = values[slot];
+            int next = slot;
+            while (true) {
+                next = (next + 1) & mask;
+                if (keys[next] == EMPTY) {
+                    break;
+                }
+                int home = slot(keys[next]);
+                // Move the entry back unless its home slot lies cyclically between the hole and its position
+                boolean stays = slot <= next ? slot < home && home <= next : slot < home || home <= next;
+                if (!stays) {
+                    keys[slot] = keys[next];
+                    values[slot] = values[next];
+                    slot = next;
+                }
+            }
+            keys[slot] = EMPTY;
+            size--;
+            return previous;
+        }
+
+        private int slot(long key) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & (keys.length - 1);
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldValues.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+    }
+}
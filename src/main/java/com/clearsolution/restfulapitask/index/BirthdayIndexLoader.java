@@ -0,0 +1,48 @@
+package com.clearsolution.restfulapitask.index;
+
+import com.clearsolution.restfulapitask.model.UserBirthday;
+import com.clearsolution.restfulapitask.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.stream.Stream;
+
+/**
+ * Builds the {@link BirthdayIndex} once all singletons exist, which is before the web server starts accepting
+ * requests, so no write can slip past the initial load.
+ */
+@Component
+@ConditionalOnProperty(name = "app.search.birthday-index.enabled", havingValue = "true")
+public class BirthdayIndexLoader implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(BirthdayIndexLoader.class);
+
+    private final BirthdayIndex birthdayIndex;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public BirthdayIndexLoader(BirthdayIndex birthdayIndex, UserRepository userRepository, PlatformTransactionManager transactionManager) {
+        this.birthdayIndex = birthdayIndex;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        long started = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<UserBirthday> birthdays = userRepository.streamAllBirthdays()) {
+                birthdays.forEach(birthday -> birthdayIndex.put(birthday.id(), birthday.birthday()));
+            }
+        });
+        birthdayIndex.markReady();
+        logger.info("Birthday index built: {} users, ~{} bytes in {} ms", birthdayIndex.size(),
+                birthdayIndex.estimatedBytes(), (System.nanoTime() - started) / 1_000_000);
+    }
+}
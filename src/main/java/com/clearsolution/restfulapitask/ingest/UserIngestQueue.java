@@ -0,0 +1,222 @@
+package com.clearsolution.restfulapitask.ingest;
+
+import com.clearsolution.restfulapitask.data.BatchItemResult;
+import com.clearsolution.restfulapitask.data.IngestStatus;
+import com.clearsolution.restfulapitask.exception.IngestQueueFullException;
+import com.clearsolution.restfulapitask.exception.IngestStatusNotFoundException;
+import com.clearsolution.restfulapitask.exception.UserAgeUnacceptableException;
+import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.service.UserService;
+import com.clearsolution.restfulapitask.validation.AgeValidator;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind mode for {@code POST /create}. Validated users are put on a bounded queue and acknowledged with a
+ * tracking id; worker threads drain the queue into {@link UserService#createUsers} batches. A full queue is
+ * rejected straight away instead of blocking the request thread.
+ * <p>
+ * On shutdown the queue stops accepting and the workers keep going until it is empty or the shutdown timeout
+ * runs out. This lifecycle stops after the web server, so requests already accepted are not lost.
+ */
+@Component
+@Profile("!reactive")
+public class UserIngestQueue implements SmartLifecycle, MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserIngestQueue.class);
+
+    private static final long POLL_MILLIS = 100;
+
+    private final UserService userService;
+    private final AgeValidator ageValidator;
+    private final boolean enabled;
+    private final int workerCount;
+    private final int batchSize;
+    private final Duration shutdownTimeout;
+    private final BlockingQueue<PendingUser> queue;
+    private final Cache<UUID, IngestStatus> statuses;
+    private final List<Thread> workers = new ArrayList<>();
+
+    private volatile boolean accepting;
+    private volatile boolean running;
+    private Counter rejectedCounter;
+
+    public UserIngestQueue(UserService userService, AgeValidator ageValidator,
+                           @Value("${app.ingest.async.enabled}") boolean enabled,
+                           @Value("${app.ingest.queue-capacity}") int queueCapacity,
+                           @Value("${app.ingest.workers}") int workerCount,
+                           @Value("${app.ingest.batch-size}") int batchSize,
+                           @Value("${app.ingest.status-ttl}") Duration statusTtl,
+                           @Value("${app.ingest.shutdown-timeout}") Duration shutdownTimeout) {
+        this.userService = userService;
+        this.ageValidator = ageValidator;
+        this.enabled = enabled;
+        this.workerCount = workerCount;
+        this.batchSize = batchSize;
+        this.shutdownTimeout = shutdownTimeout;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.statuses = Caffeine.newBuilder()
+                .expireAfterWrite(statusTtl)
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues a user whose bean constraints were already checked and returns its tracking id.
+     *
+     * @throws UserAgeUnacceptableException if the user is under the legal age
+     * @throws IngestQueueFullException if the queue is full or shutting down
+     */
+    public UUID submit(User user) {
+        if (!ageValidator.isValidAge(user.getBirthday())) {
+            logger.error("User creation failed due to unacceptable age: {}", user.getBirthday());
+            throw new UserAgeUnacceptableException("User age is less than the acceptable limit ");
+        }
+        UUID trackingId = UUID.randomUUID();
+        user.setId(null);
+        // The status goes in first so a worker that picks the user up immediately finds it to overwrite
+        statuses.put(trackingId, IngestStatus.queued(trackingId));
+        if (!accepting || !queue.offer(new PendingUser(trackingId, user))) {
+            statuses.invalidate(trackingId);
+            if (rejectedCounter != null) {
+                rejectedCounter.increment();
+            }
+            logger.warn("User creation rejected: ingest queue is full or stopping");
+            throw new IngestQueueFullException("Too many pending creates, retry later");
+        }
+        return trackingId;
+    }
+
+    public IngestStatus status(UUID trackingId) {
+        IngestStatus status = statuses.getIfPresent(trackingId);
+        if (status == null) {
+            throw new IngestStatusNotFoundException("Tracking id not found");
+        }
+        return status;
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        accepting = true;
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(Thread.ofPlatform().name("user-ingest-" + i).start(this::drain));
+        }
+        logger.info("User ingest queue started with {} workers", workerCount);
+    }
+
+    @Override
+    public void stop() {
+        accepting = false;
+        running = false;
+        long deadline = System.nanoTime() + shutdownTimeout.toNanos();
+        for (Thread worker : workers) {
+            try {
+                worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        workers.forEach(Thread::interrupt);
+        workers.clear();
+        if (!queue.isEmpty()) {
+            logger.error("User ingest queue stopped with {} users not written", queue.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Below the web server phases, so this stops once no more requests can arrive
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("users.ingest.queue.size", queue, BlockingQueue::size)
+                .description("Users waiting to be written by the ingest workers")
+                .register(registry);
+        Gauge.builder("users.ingest.queue.remaining", queue, BlockingQueue::remainingCapacity)
+                .description("Free slots in the ingest queue")
+                .register(registry);
+        rejectedCounter = Counter.builder("users.ingest.rejected")
+                .description("Creates rejected because the ingest queue was full")
+                .register(registry);
+    }
+
+    private void drain() {
+        List<PendingUser> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingUser first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingUser> batch) {
+        List<User> users = new ArrayList<>(batch.size());
+        for (PendingUser pending : batch) {
+            users.add(pending.user());
+        }
+        try {
+            List<BatchItemResult> results = userService.createUsers(users);
+            for (BatchItemResult result : results) {
+                UUID trackingId = batch.get(result.index()).trackingId();
+                statuses.put(trackingId, IngestStatus.of(trackingId, result));
+            }
+            logger.info("Ingest batch written: {} users", batch.size());
+        } catch (RuntimeException e) {
+            logger.error("Ingest batch of {} users failed", batch.size(), e);
+            for (PendingUser pending : batch) {
+                statuses.put(pending.trackingId(), IngestStatus.failed(pending.trackingId(), "User could not be saved"));
+            }
+        }
+    }
+
+    private record PendingUser(UUID trackingId, User user) {
+    }
+}
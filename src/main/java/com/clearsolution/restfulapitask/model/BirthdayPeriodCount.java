@@ -0,0 +1,7 @@
+package com.clearsolution.restfulapitask.model;
+
+/**
+ * Users born in a year, or in a month of that year when {@code month} is set.
+ */
+public record BirthdayPeriodCount(Integer year, Integer month, Long count) {
+}
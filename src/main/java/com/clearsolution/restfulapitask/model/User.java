@@ -1,21 +1,38 @@
 package com.clearsolution.restfulapitask.model;
 
+import com.clearsolution.restfulapitask.shard.ShardAwareIdGenerator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Past;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import java.time.LocalDate;
 
 
 @Entity
-@Table(name = "users")
+// Mirrors the indexes created by the migrations in db/migration
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_birthday_id", columnList = "birthday, id"),
+        @Index(name = "idx_users_birth_month_day", columnList = "birth_month_day"),
+        @Index(name = "uk_users_email", columnList = "email", unique = true)
+})
 @Data
 public class User {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "users_seq")
+    // users_seq with blocks of 50 ids, or shard-aware ids in sharding mode
+    @GenericGenerator(name = "users_seq", type = ShardAwareIdGenerator.class, parameters = {
+            @Parameter(name = "sequence_name", value = "users_seq"),
+            @Parameter(name = "increment_size", value = "50")
+    })
     private Long id;
     @Email(message = "Incorrect email")
     @NotBlank(message = "Email required")
@@ -29,10 +46,44 @@ public class User {
     @Past(message = "Birth day can`t be in future or in present")
     @NotNull(message = "Birthday date must be present")
     private LocalDate birthday;
+    // month * 100 + day of the birthday, kept in step by setBirthday so anniversaries can be found through an index
+    @Column(name = "birth_month_day")
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    private Integer birthMonthDay;
 
     private String address;
     @Column(name = "phone_number")
     private String phoneNumber;
+    // Sent to clients as the ETag; bulk updates bump it themselves since they bypass Hibernate's versioning
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
+    public void setBirthday(LocalDate birthday) {
+        this.birthday = birthday;
+        this.birthMonthDay = birthday == null ? null : monthDayKey(birthday);
+    }
+
+    public static int monthDayKey(LocalDate date) {
+        return date.getMonthValue() * 100 + date.getDayOfMonth();
+    }
+
+    /**
+     * A detached copy of the mapped fields, for holding on to a user's state after the original may have changed.
+     */
+    public static User copyOf(User user) {
+        User copy = new User();
+        copy.setId(user.getId());
+        copy.setEmail(user.getEmail());
+        copy.setFirstName(user.getFirstName());
+        copy.setLastName(user.getLastName());
+        copy.setBirthday(user.getBirthday());
+        copy.setAddress(user.getAddress());
+        copy.setPhoneNumber(user.getPhoneNumber());
+        copy.setVersion(user.getVersion());
+        return copy;
+    }
 
 
 }
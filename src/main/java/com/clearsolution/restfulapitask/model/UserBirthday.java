@@ -0,0 +1,6 @@
+package com.clearsolution.restfulapitask.model;
+
+import java.time.LocalDate;
+
+public record UserBirthday(Long id, LocalDate birthday) {
+}
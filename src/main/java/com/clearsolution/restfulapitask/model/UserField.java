@@ -0,0 +1,77 @@
+package com.clearsolution.restfulapitask.model;
+
+import com.clearsolution.restfulapitask.exception.UnknownUserFieldException;
+
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * User properties a client can pick with {@code fields=}. Names are the JSON property names and double as the
+ * entity attribute names, so a selection maps straight onto a projection query.
+ */
+public enum UserField {
+    ID("id", User::getId),
+    EMAIL("email", User::getEmail),
+    FIRST_NAME("firstName", User::getFirstName),
+    LAST_NAME("lastName", User::getLastName),
+    BIRTHDAY("birthday", User::getBirthday),
+    ADDRESS("address", User::getAddress),
+    PHONE_NUMBER("phoneNumber", User::getPhoneNumber),
+    VERSION("version", User::getVersion);
+
+    private final String attribute;
+    private final Function<User, Object> getter;
+
+    UserField(String attribute, Function<User, Object> getter) {
+        this.attribute = attribute;
+        this.getter = getter;
+    }
+
+    public String attribute() {
+        return attribute;
+    }
+
+    public Object valueOf(User user) {
+        return getter.apply(user);
+    }
+
+    /**
+     * Parses a comma-separated list of property names. The id is always part of the selection so results stay
+     * addressable.
+     *
+     * @throws UnknownUserFieldException if a name is not a user property
+     */
+    public static Set<UserField> parse(String fields) {
+        Set<UserField> selected = EnumSet.of(ID);
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (!trimmed.isEmpty()) {
+                selected.add(byAttribute(trimmed));
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * The selected properties of an already loaded user, shaped like a row of a projection query.
+     */
+    public static Map<String, Object> project(User user, Set<UserField> fields) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (UserField field : fields) {
+            row.put(field.attribute, field.valueOf(user));
+        }
+        return row;
+    }
+
+    private static UserField byAttribute(String attribute) {
+        for (UserField field : values()) {
+            if (field.attribute.equals(attribute)) {
+                return field;
+            }
+        }
+        throw new UnknownUserFieldException("Unknown user field: " + attribute);
+    }
+}
@@ -0,0 +1,140 @@
+package com.clearsolution.restfulapitask.replica;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Read-your-writes for {@link ReplicaRouter}: after a client sends a write, its requests read from the primary for
+ * as long as a replica in rotation may still be behind, so it always sees its own changes. The response to a write
+ * sets the {@value #LAST_WRITE_COOKIE} cookie to the time the write finished, and the client's requests carry it
+ * back. Nothing is kept on the server, so the pin holds behind proxies and on whichever instance the next request
+ * reaches; the instances' clocks only have to agree to well within the max lag.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    public static final String LAST_WRITE_COOKIE = "last-write";
+
+    // OPTIONS, e.g. CORS preflights, and TRACE change nothing
+    private static final Set<String> WRITE_METHODS = Set.of("POST", "PUT", "PATCH", "DELETE");
+    private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = new ThreadLocal<>();
+
+    private final Duration maxLag;
+
+    public ReadYourWritesFilter(Duration maxLag) {
+        this.maxLag = maxLag;
+    }
+
+    public static boolean isPinnedToPrimary() {
+        return PINNED_TO_PRIMARY.get() != null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean write = WRITE_METHODS.contains(request.getMethod());
+        if (write || wroteRecently(request)) {
+            PINNED_TO_PRIMARY.set(Boolean.TRUE);
+        }
+        try {
+            if (write) {
+                LastWriteResponse lastWriteResponse = new LastWriteResponse(response);
+                filterChain.doFilter(request, lastWriteResponse);
+                lastWriteResponse.stamp();
+            } else {
+                filterChain.doFilter(request, response);
+            }
+        } finally {
+            PINNED_TO_PRIMARY.remove();
+        }
+    }
+
+    private boolean wroteRecently(HttpServletRequest request) {
+        Cookie cookie = WebUtils.getCookie(request, LAST_WRITE_COOKIE);
+        if (cookie == null) {
+            return false;
+        }
+        try {
+            return System.currentTimeMillis() < Long.parseLong(cookie.getValue()) + maxLag.toMillis();
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Adds the cookie just before the response is committed. That is after the write finished, which is when
+     * replication of it can start, but still early enough for a header.
+     */
+    private final class LastWriteResponse extends HttpServletResponseWrapper {
+
+        private boolean stamped;
+
+        private LastWriteResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        void stamp() {
+            if (stamped || isCommitted()) {
+                return;
+            }
+            stamped = true;
+            ResponseCookie cookie = ResponseCookie.from(LAST_WRITE_COOKIE, String.valueOf(System.currentTimeMillis()))
+                    .path("/")
+                    // Max-Age is in whole seconds
+                    .maxAge(maxLag.plusSeconds(1))
+                    .httpOnly(true)
+                    .sameSite("Lax")
+                    .build();
+            addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            stamp();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            stamp();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            stamp();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            stamp();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            stamp();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            stamp();
+            super.sendRedirect(location);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.clearsolution.restfulapitask.replica;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Picks the database for a read-only connection: one of the replicas, or the primary for requests pinned by
+ * {@link ReadYourWritesFilter}. A replica only takes reads while its last lag check found it at most {@code maxLag}
+ * behind; a replica that cannot be checked is left out as well, and with no replica left reads fall back to the
+ * primary.
+ * <p>
+ * Owns the pools it routes to and closes them with the application context.
+ */
+public class ReplicaRouter implements SmartLifecycle, MeterBinder, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRouter.class);
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final ReplicaSelection selection;
+    private final Duration maxLag;
+    private final String lagQuery;
+    private final Duration checkInterval;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private ScheduledExecutorService lagChecker;
+
+    /**
+     * @param replicas replica pools by the name used in logs and metrics
+     * @param lagQuery query returning how far a replica is behind, in seconds, as a single number
+     */
+    public ReplicaRouter(DataSource primary, Map<String, DataSource> replicas, ReplicaSelection selection, Duration maxLag,
+                         String lagQuery, Duration checkInterval) {
+        this.primary = primary;
+        replicas.forEach((name, dataSource) -> this.replicas.add(new Replica(name, dataSource)));
+        this.selection = selection;
+        this.maxLag = maxLag;
+        this.lagQuery = lagQuery;
+        this.checkInterval = checkInterval;
+    }
+
+    public DataSource primary() {
+        return primary;
+    }
+
+    /**
+     * The database for a read-only connection taken now, in the current request.
+     */
+    public DataSource route() {
+        if (ReadYourWritesFilter.isPinnedToPrimary()) {
+            return primary;
+        }
+        Replica replica = selection == ReplicaSelection.LEAST_LOADED ? leastLoaded() : roundRobin();
+        return replica == null ? primary : replica;
+    }
+
+    /**
+     * Measures the lag of every replica and takes it in or out of rotation.
+     */
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            boolean wasAvailable = replica.available;
+            try (Connection connection = replica.target.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet result = statement.executeQuery(lagQuery)) {
+                result.next();
+                replica.lagSeconds = result.getDouble(1);
+                replica.available = replica.lagSeconds * 1000 <= maxLag.toMillis();
+                if (wasAvailable && !replica.available) {
+                    logger.warn("Replica {} left out of reads: {} s behind the primary", replica.name, replica.lagSeconds);
+                }
+            } catch (SQLException | RuntimeException e) {
+                replica.available = false;
+                if (wasAvailable) {
+                    logger.warn("Replica {} left out of reads: lag check failed", replica.name, e);
+                }
+            }
+            if (!wasAvailable && replica.available) {
+                logger.info("Replica {} taking reads, {} s behind the primary", replica.name, replica.lagSeconds);
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        lagChecker = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("replica-lag-check").daemon().factory());
+        lagChecker.scheduleWithFixedDelay(this::checkReplicas, 0, checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        if (lagChecker != null) {
+            lagChecker.shutdownNow();
+            lagChecker = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return lagChecker != null;
+    }
+
+    @Override
+    public void close() throws Exception {
+        stop();
+        for (Replica replica : replicas) {
+            if (replica.target instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+        if (primary instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Replica replica : replicas) {
+            Gauge.builder("users.datasource.replica.available", replica, r -> r.available ? 1 : 0)
+                    .description("Whether the replica currently takes reads")
+                    .tag("replica", replica.name)
+                    .register(registry);
+            Gauge.builder("users.datasource.replica.lag", replica, r -> r.lagSeconds)
+                    .description("Seconds the replica was behind the primary at the last check")
+                    .baseUnit("seconds")
+                    .tag("replica", replica.name)
+                    .register(registry);
+            Gauge.builder("users.datasource.replica.active", replica.active, AtomicInteger::get)
+                    .description("Connections of the replica currently in use")
+                    .tag("replica", replica.name)
+                    .register(registry);
+        }
+    }
+
+    private Replica roundRobin() {
+        int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.available) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private Replica leastLoaded() {
+        Replica least = null;
+        for (Replica replica : replicas) {
+            if (replica.available && (least == null || replica.active.get() < least.active.get())) {
+                least = replica;
+            }
+        }
+        return least;
+    }
+
+    /**
+     * A replica pool that counts the connections taken from it until they are closed.
+     */
+    private static final class Replica extends AbstractDataSource {
+
+        private final String name;
+        private final DataSource target;
+        private final AtomicInteger active = new AtomicInteger();
+        private volatile boolean available;
+        private volatile double lagSeconds;
+
+        private Replica(String name, DataSource target) {
+            this.name = name;
+            this.target = target;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return counted(target.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return counted(target.getConnection(username, password));
+        }
+
+        private Connection counted(Connection connection) {
+            active.incrementAndGet();
+            AtomicBoolean closed = new AtomicBoolean();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("close") && closed.compareAndSet(false, true)) {
+                            active.decrementAndGet();
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.clearsolution.restfulapitask.replica;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Takes each connection from the database {@link ReplicaRouter} picks. Meant as the read-only data source of a
+ * {@link LazyConnectionDataSourceProxy}, which holds the real connection back until the first statement and by then
+ * knows whether the transaction marked it read-only.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private final ReplicaRouter router;
+
+    public ReplicaRoutingDataSource(ReplicaRouter router) {
+        this.router = router;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return router.route().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return router.route().getConnection(username, password);
+    }
+}
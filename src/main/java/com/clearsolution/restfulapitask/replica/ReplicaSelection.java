@@ -0,0 +1,8 @@
+package com.clearsolution.restfulapitask.replica;
+
+public enum ReplicaSelection {
+    // Each read goes to the next available replica in turn
+    ROUND_ROBIN,
+    // Each read goes to the available replica with the fewest connections in use
+    LEAST_LOADED
+}
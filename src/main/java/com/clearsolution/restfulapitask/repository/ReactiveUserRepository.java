@@ -0,0 +1,205 @@
+package com.clearsolution.restfulapitask.repository;
+
+import com.clearsolution.restfulapitask.model.User;
+import io.r2dbc.spi.Readable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * R2DBC access to the {@code users} table for the reactive stack. Statements are written by hand against
+ * {@link DatabaseClient} because {@link User} is mapped for JPA, and ids come from the same {@code users_seq}
+ * sequence Hibernate uses so both stacks can write to one table.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveUserRepository {
+
+    // Must match the allocationSize of the users_seq generator on User
+    private static final int ID_ALLOCATION_SIZE = 50;
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private static final String COLUMNS = "id, email, first_name, last_name, birthday, birth_month_day, address, phone_number, version";
+
+    private final DatabaseClient databaseClient;
+
+    private long nextId;
+    private long maxId = -1;
+
+    public ReactiveUserRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<User> insert(User user) {
+        return allocateId().flatMap(id -> {
+            user.setId(id);
+            user.setVersion(0L);
+            return bindFields(databaseClient.sql("INSERT INTO users (" + COLUMNS + ") VALUES "
+                            + "(:id, :email, :firstName, :lastName, :birthday, :birthMonthDay, :address, :phoneNumber, 0)")
+                    .bind("id", id), user)
+                    .fetch().rowsUpdated()
+                    .thenReturn(user);
+        });
+    }
+
+    public Mono<User> findById(Long id) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM users WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveUserRepository::toUser)
+                .one();
+    }
+
+    /**
+     * With a non-null {@code expectedVersion} the row is only touched while it still has that version, as in
+     * {@link UserRepository#updateUserIfVersion}.
+     */
+    public Mono<Long> update(Long id, Long expectedVersion, User user) {
+        return bindVersion(bindFields(databaseClient.sql("UPDATE users SET email = :email, first_name = :firstName, "
+                        + "last_name = :lastName, birthday = :birthday, birth_month_day = :birthMonthDay, address = :address, "
+                        + "phone_number = :phoneNumber, "
+                        + "version = COALESCE(version, 0) + 1 WHERE id = :id" + versionCondition(expectedVersion))
+                .bind("id", id), user), expectedVersion)
+                .fetch().rowsUpdated();
+    }
+
+    /**
+     * Same contract as {@link UserRepositoryCustom#updateNonNullFields}: only non-null fields are written and an
+     * empty patch reports whether the user exists, at {@code expectedVersion} when that is non-null.
+     */
+    public Mono<Long> updateNonNullFields(Long id, Long expectedVersion, User fields) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        putIfPresent(values, "email", fields.getEmail());
+        putIfPresent(values, "first_name", fields.getFirstName());
+        putIfPresent(values, "last_name", fields.getLastName());
+        putIfPresent(values, "birthday", fields.getBirthday());
+        putIfPresent(values, "birth_month_day", fields.getBirthMonthDay());
+        putIfPresent(values, "address", fields.getAddress());
+        putIfPresent(values, "phone_number", fields.getPhoneNumber());
+        if (values.isEmpty()) {
+            return findById(id)
+                    .map(user -> expectedVersion == null || expectedVersion.equals(user.getVersion()) ? 1L : 0L)
+                    .defaultIfEmpty(0L);
+        }
+        StringBuilder sql = new StringBuilder("UPDATE users SET ");
+        values.keySet().forEach(column -> sql.append(column).append(" = :").append(column).append(", "));
+        sql.append("version = COALESCE(version, 0) + 1 WHERE id = :id").append(versionCondition(expectedVersion));
+        DatabaseClient.GenericExecuteSpec spec = bindVersion(databaseClient.sql(sql.toString()).bind("id", id), expectedVersion);
+        for (Map.Entry<String, Object> value : values.entrySet()) {
+            spec = spec.bind(value.getKey(), value.getValue());
+        }
+        return spec.fetch().rowsUpdated();
+    }
+
+    public Mono<Long> deleteById(Long id) {
+        return databaseClient.sql("DELETE FROM users WHERE id = :id")
+                .bind("id", id)
+                .fetch().rowsUpdated();
+    }
+
+    /**
+     * Rows are pulled from the driver in chunks as the subscriber requests them, so a slow client holds back the
+     * query instead of buffering the whole range.
+     */
+    public Flux<User> findByBirthdayRange(LocalDate from, LocalDate to) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM users WHERE birthday BETWEEN :from AND :to ORDER BY birthday, id")
+                .bind("from", from)
+                .bind("to", to)
+                .filter(statement -> statement.fetchSize(STREAM_FETCH_SIZE))
+                .map(ReactiveUserRepository::toUser)
+                .all();
+    }
+
+    public Flux<User> findByBirthdayRange(LocalDate from, LocalDate to, int limit) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM users WHERE birthday BETWEEN :from AND :to "
+                        + "ORDER BY birthday, id LIMIT :limit")
+                .bind("from", from)
+                .bind("to", to)
+                .bind("limit", limit)
+                .map(ReactiveUserRepository::toUser)
+                .all();
+    }
+
+    public Flux<User> findByBirthdayRangeAfter(LocalDate from, LocalDate to, LocalDate afterBirthday, Long afterId, int limit) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM users WHERE birthday BETWEEN :from AND :to "
+                        + "AND (birthday > :afterBirthday OR (birthday = :afterBirthday AND id > :afterId)) "
+                        + "ORDER BY birthday, id LIMIT :limit")
+                .bind("from", from)
+                .bind("to", to)
+                .bind("afterBirthday", afterBirthday)
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(ReactiveUserRepository::toUser)
+                .all();
+    }
+
+    /**
+     * Hands out ids the way Hibernate's pooled optimizer does: every {@code nextval} returns the upper end of a
+     * block of {@link #ID_ALLOCATION_SIZE} ids reserved for this instance.
+     */
+    private Mono<Long> allocateId() {
+        synchronized (this) {
+            if (nextId <= maxId) {
+                return Mono.just(nextId++);
+            }
+        }
+        return databaseClient.sql("SELECT nextval('users_seq')")
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .map(hi -> {
+                    synchronized (this) {
+                        // The very first value of the sequence is 1 and has no block below it
+                        nextId = Math.max(hi - ID_ALLOCATION_SIZE + 1, 1);
+                        maxId = hi;
+                        return nextId++;
+                    }
+                });
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindFields(DatabaseClient.GenericExecuteSpec spec, User user) {
+        spec = bindNullable(spec, "email", user.getEmail(), String.class);
+        spec = bindNullable(spec, "firstName", user.getFirstName(), String.class);
+        spec = bindNullable(spec, "lastName", user.getLastName(), String.class);
+        spec = bindNullable(spec, "birthday", user.getBirthday(), LocalDate.class);
+        spec = bindNullable(spec, "birthMonthDay", user.getBirthMonthDay(), Integer.class);
+        spec = bindNullable(spec, "address", user.getAddress(), String.class);
+        return bindNullable(spec, "phoneNumber", user.getPhoneNumber(), String.class);
+    }
+
+    private static String versionCondition(Long expectedVersion) {
+        return expectedVersion == null ? "" : " AND version = :expectedVersion";
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindVersion(DatabaseClient.GenericExecuteSpec spec, Long expectedVersion) {
+        return expectedVersion == null ? spec : spec.bind("expectedVersion", expectedVersion);
+    }
+
+    private static <T> DatabaseClient.GenericExecuteSpec bindNullable(DatabaseClient.GenericExecuteSpec spec, String name,
+                                                                      T value, Class<T> type) {
+        return value == null ? spec.bindNull(name, type) : spec.bind(name, value);
+    }
+
+    private static void putIfPresent(Map<String, Object> values, String column, Object value) {
+        if (value != null) {
+            values.put(column, value);
+        }
+    }
+
+    private static User toUser(Readable row) {
+        User user = new User();
+        user.setId(row.get("id", Long.class));
+        user.setEmail(row.get("email", String.class));
+        user.setFirstName(row.get("first_name", String.class));
+        user.setLastName(row.get("last_name", String.class));
+        user.setBirthday(row.get("birthday", LocalDate.class));
+        user.setAddress(row.get("address", String.class));
+        user.setPhoneNumber(row.get("phone_number", String.class));
+        user.setVersion(row.get("version", Long.class));
+        return user;
+    }
+}
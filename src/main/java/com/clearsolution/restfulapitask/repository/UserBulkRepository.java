@@ -0,0 +1,129 @@
+package com.clearsolution.restfulapitask.repository;
+
+import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.shard.ShardRouter;
+import org.postgresql.PGConnection;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Date;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Plain JDBC inserts for bulk imports, bypassing the persistence context. On PostgreSQL the rows are streamed with
+ * {@code COPY}; other databases get a JDBC batch. Callers run each call in a transaction so a chunk is written
+ * completely or not at all.
+ */
+@Repository
+@Profile("!reactive")
+public class UserBulkRepository {
+
+    // Must match the allocationSize of the users_seq generator on User
+    private static final int ID_ALLOCATION_SIZE = 50;
+
+    private static final String COLUMNS = "id, email, first_name, last_name, birthday, birth_month_day, address, phone_number, version";
+    private static final String COPY_SQL = "COPY users (" + COLUMNS + ") FROM STDIN WITH (FORMAT csv)";
+    private static final String INSERT_SQL = "INSERT INTO users (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Boolean copySupported;
+
+    public UserBulkRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Assigns ids from {@code users_seq}, or shard ids inside {@link ShardRouter#onShard}, and inserts the users with
+     * version 0.
+     */
+    public void insert(List<User> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        assignIds(users);
+        if (isCopySupported()) {
+            copy(users);
+        } else {
+            jdbcTemplate.batchUpdate(INSERT_SQL, users, users.size(), (statement, user) -> {
+                statement.setLong(1, user.getId());
+                statement.setString(2, user.getEmail());
+                statement.setString(3, user.getFirstName());
+                statement.setString(4, user.getLastName());
+                statement.setDate(5, user.getBirthday() == null ? null : Date.valueOf(user.getBirthday()));
+                if (user.getBirthMonthDay() == null) {
+                    statement.setNull(6, Types.INTEGER);
+                } else {
+                    statement.setInt(6, user.getBirthMonthDay());
+                }
+                statement.setString(7, user.getAddress());
+                statement.setString(8, user.getPhoneNumber());
+            });
+        }
+    }
+
+    /**
+     * Reserves id blocks the way Hibernate's pooled optimizer does, so imported ids never collide with ids handed out
+     * by the application: every {@code nextval} is the upper end of a block of {@link #ID_ALLOCATION_SIZE} ids.
+     */
+    private void assignIds(List<User> users) {
+        if (ShardRouter.currentShard() != null) {
+            users.forEach(user -> user.setId(ShardRouter.nextId()));
+            users.forEach(user -> user.setVersion(0L));
+            return;
+        }
+        int assigned = 0;
+        while (assigned < users.size()) {
+            int blocks = (users.size() - assigned + ID_ALLOCATION_SIZE - 1) / ID_ALLOCATION_SIZE;
+            List<Long> his = jdbcTemplate.queryForList("SELECT nextval('users_seq') FROM generate_series(1, ?)", Long.class, blocks);
+            for (long hi : his) {
+                // The very first value of the sequence is 1 and has no block below it
+                for (long id = Math.max(hi - ID_ALLOCATION_SIZE + 1, 1); id <= hi && assigned < users.size(); id++) {
+                    users.get(assigned++).setId(id);
+                }
+            }
+        }
+        users.forEach(user -> user.setVersion(0L));
+    }
+
+    private void copy(List<User> users) {
+        StringBuilder rows = new StringBuilder(users.size() * 128);
+        for (User user : users) {
+            rows.append(user.getId()).append(',');
+            appendText(rows, user.getEmail()).append(',');
+            appendText(rows, user.getFirstName()).append(',');
+            appendText(rows, user.getLastName()).append(',');
+            rows.append(user.getBirthday() == null ? "" : user.getBirthday().toString()).append(',');
+            rows.append(user.getBirthMonthDay() == null ? "" : user.getBirthMonthDay().toString()).append(',');
+            appendText(rows, user.getAddress()).append(',');
+            appendText(rows, user.getPhoneNumber()).append(",0\n");
+        }
+        jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL, new StringReader(rows.toString()));
+            } catch (IOException e) {
+                throw new DataAccessResourceFailureException("COPY into users failed", e);
+            }
+        });
+    }
+
+    private boolean isCopySupported() {
+        if (copySupported == null) {
+            copySupported = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> connection.isWrapperFor(PGConnection.class));
+        }
+        return copySupported;
+    }
+
+    /**
+     * In CSV format an unquoted empty field is {@code NULL}, so every present value is quoted.
+     */
+    private static StringBuilder appendText(StringBuilder rows, String value) {
+        return value == null ? rows : rows.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+}
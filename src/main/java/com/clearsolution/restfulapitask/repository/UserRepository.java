@@ -1,15 +1,93 @@
 package com.clearsolution.restfulapitask.repository;
 
+import com.clearsolution.restfulapitask.model.BirthdayPeriodCount;
 import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.model.UserBirthday;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
-    @Query("SELECT u FROM User u WHERE u.birthday BETWEEN :from AND :to")
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
+    @Query("SELECT u FROM User u WHERE u.birthday BETWEEN :from AND :to ORDER BY u.birthday, u.id")
     List<User> findUsersByBirthDateRange(LocalDate from, LocalDate to);
+
+    @Query("SELECT u FROM User u WHERE u.birthday BETWEEN :from AND :to ORDER BY u.birthday, u.id")
+    List<User> findUsersByBirthDateRange(LocalDate from, LocalDate to, Limit limit);
+
+    @Query("SELECT u FROM User u WHERE u.birthday BETWEEN :from AND :to " +
+            "AND (u.birthday > :afterBirthday OR (u.birthday = :afterBirthday AND u.id > :afterId)) " +
+            "ORDER BY u.birthday, u.id")
+    List<User> findUsersByBirthDateRangeAfter(LocalDate from, LocalDate to, LocalDate afterBirthday, Long afterId, Limit limit);
+
+    Optional<User> findByEmail(String email);
+
+    long countByBirthdayBetween(LocalDate from, LocalDate to);
+
+    @Query("SELECT new com.clearsolution.restfulapitask.model.BirthdayPeriodCount(YEAR(u.birthday), CAST(NULL AS Integer), COUNT(u)) " +
+            "FROM User u WHERE u.birthday BETWEEN :from AND :to GROUP BY YEAR(u.birthday) ORDER BY YEAR(u.birthday)")
+    List<BirthdayPeriodCount> countByBirthdayYear(LocalDate from, LocalDate to);
+
+    @Query("SELECT new com.clearsolution.restfulapitask.model.BirthdayPeriodCount(YEAR(u.birthday), MONTH(u.birthday), COUNT(u)) " +
+            "FROM User u WHERE u.birthday BETWEEN :from AND :to " +
+            "GROUP BY YEAR(u.birthday), MONTH(u.birthday) ORDER BY YEAR(u.birthday), MONTH(u.birthday)")
+    List<BirthdayPeriodCount> countByBirthdayMonth(LocalDate from, LocalDate to);
+
+    @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+    List<String> findExistingEmails(Collection<String> emails);
+
+    @Query("SELECT u FROM User u WHERE u.birthMonthDay BETWEEN :fromKey AND :toKey")
+    List<User> findUsersByBirthMonthDayBetween(int fromKey, int toKey);
+
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT u FROM User u WHERE u.birthday BETWEEN :from AND :to ORDER BY u.birthday, u.id")
+    Stream<User> streamUsersByBirthDateRange(LocalDate from, LocalDate to);
+
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT u FROM User u ORDER BY u.id")
+    Stream<User> streamAllUsers();
+
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "10000"))
+    @Query("SELECT new com.clearsolution.restfulapitask.model.UserBirthday(u.id, u.birthday) FROM User u")
+    Stream<UserBirthday> streamAllBirthdays();
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE User u SET u.email = :#{#user.email}, u.firstName = :#{#user.firstName}, u.lastName = :#{#user.lastName}, " +
+            "u.birthday = :#{#user.birthday}, u.birthMonthDay = :#{#user.birthMonthDay}, " +
+            "u.address = :#{#user.address}, u.phoneNumber = :#{#user.phoneNumber}, " +
+            "u.version = COALESCE(u.version, 0) + 1 " +
+            "WHERE u.id = :id")
+    int updateUser(Long id, User user);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE User u SET u.email = :#{#user.email}, u.firstName = :#{#user.firstName}, u.lastName = :#{#user.lastName}, " +
+            "u.birthday = :#{#user.birthday}, u.birthMonthDay = :#{#user.birthMonthDay}, " +
+            "u.address = :#{#user.address}, u.phoneNumber = :#{#user.phoneNumber}, " +
+            "u.version = u.version + 1 " +
+            "WHERE u.id = :id AND u.version = :version")
+    int updateUserIfVersion(Long id, Long version, User user);
+
+    @Query("SELECT u.version FROM User u WHERE u.id = :id")
+    Long findVersionById(Long id);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM User u WHERE u.id = :id")
+    int deleteUserById(Long id);
 }
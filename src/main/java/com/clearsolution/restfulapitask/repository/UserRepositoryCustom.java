@@ -0,0 +1,29 @@
+package com.clearsolution.restfulapitask.repository;
+
+import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.model.UserField;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+public interface UserRepositoryCustom {
+
+    /**
+     * Updates only the columns whose values are non-null in {@code fields} with a single statement and bumps the
+     * version. With a non-null {@code expectedVersion} the row is only touched while it still has that version.
+     *
+     * @return number of affected rows, zero when no user has the given id or its version differs
+     */
+    int updateNonNullFields(Long id, Long expectedVersion, User fields);
+
+    /**
+     * Selects only the given columns of the users born in the range. Rows come back as plain values keyed by
+     * {@link UserField#attribute()}, so no entities are loaded into the persistence context.
+     */
+    List<Map<String, Object>> findFieldsByBirthDateRange(LocalDate from, LocalDate to, Set<UserField> fields);
+
+    Optional<Map<String, Object>> findFieldsById(Long id, Set<UserField> fields);
+}
@@ -0,0 +1,111 @@
+package com.clearsolution.restfulapitask.repository;
+
+import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.model.UserField;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TupleElement;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    private final EntityManager entityManager;
+
+    public UserRepositoryCustomImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public int updateNonNullFields(Long id, Long expectedVersion, User fields) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<User> update = builder.createCriteriaUpdate(User.class);
+        Root<User> user = update.from(User.class);
+        boolean changed = false;
+        if (fields.getEmail() != null) {
+            update.set(user.get("email"), fields.getEmail());
+            changed = true;
+        }
+        if (fields.getFirstName() != null) {
+            update.set(user.get("firstName"), fields.getFirstName());
+            changed = true;
+        }
+        if (fields.getLastName() != null) {
+            update.set(user.get("lastName"), fields.getLastName());
+            changed = true;
+        }
+        if (fields.getBirthday() != null) {
+            update.set(user.get("birthday"), fields.getBirthday());
+            update.set(user.get("birthMonthDay"), fields.getBirthMonthDay());
+            changed = true;
+        }
+        if (fields.getAddress() != null) {
+            update.set(user.get("address"), fields.getAddress());
+            changed = true;
+        }
+        if (fields.getPhoneNumber() != null) {
+            update.set(user.get("phoneNumber"), fields.getPhoneNumber());
+            changed = true;
+        }
+        if (!changed) {
+            // Nothing to write, but the caller still needs to know whether the user exists in the expected version
+            User existing = entityManager.find(User.class, id);
+            return existing != null && (expectedVersion == null || expectedVersion.equals(existing.getVersion())) ? 1 : 0;
+        }
+        Path<Long> version = user.get("version");
+        update.set(version, builder.sum(builder.coalesce(version, 0L), 1L));
+        update.where(expectedVersion == null
+                ? builder.equal(user.get("id"), id)
+                : builder.and(builder.equal(user.get("id"), id), builder.equal(version, expectedVersion)));
+        entityManager.flush();
+        int updated = entityManager.createQuery(update).executeUpdate();
+        entityManager.clear();
+        return updated;
+    }
+
+    @Override
+    public List<Map<String, Object>> findFieldsByBirthDateRange(LocalDate from, LocalDate to, Set<UserField> fields) {
+        return findFields(fields, (builder, user) -> builder.between(user.get("birthday"), from, to));
+    }
+
+    @Override
+    public Optional<Map<String, Object>> findFieldsById(Long id, Set<UserField> fields) {
+        return findFields(fields, (builder, user) -> builder.equal(user.get("id"), id)).stream().findFirst();
+    }
+
+    private List<Map<String, Object>> findFields(Set<UserField> fields, BiFunction<CriteriaBuilder, Root<User>, Predicate> condition) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<User> user = query.from(User.class);
+        List<Selection<?>> selections = new ArrayList<>(fields.size());
+        for (UserField field : fields) {
+            selections.add(user.get(field.attribute()).alias(field.attribute()));
+        }
+        query.multiselect(selections).where(condition.apply(builder, user))
+                .orderBy(builder.asc(user.get("birthday")), builder.asc(user.get("id")));
+        List<Tuple> tuples = entityManager.createQuery(query).getResultList();
+        List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (TupleElement<?> element : tuple.getElements()) {
+                row.put(element.getAlias(), tuple.get(element));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,32 @@
+package com.clearsolution.restfulapitask.service;
+
+import com.clearsolution.restfulapitask.data.BatchItemResult;
+import com.clearsolution.restfulapitask.data.CursorPage;
+import com.clearsolution.restfulapitask.model.User;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface ReactiveUserService {
+    Mono<User> createUser(User user);
+
+    Flux<BatchItemResult> createUsers(List<User> users);
+
+    Mono<User> getUser(Long userId);
+
+    /**
+     * Replaces the user. With a non-null {@code expectedVersion} the update only applies while the stored user still
+     * has that version.
+     */
+    Mono<User> updateUser(Long userId, User user, Long expectedVersion);
+
+    Mono<User> updateUsersFields(Long userId, User user, Long expectedVersion);
+
+    Mono<Void> deleteUser(Long userId);
+
+    Flux<User> findUsersByBirthdayRange(LocalDate from, LocalDate to);
+
+    Mono<CursorPage<List<User>>> findUsersByBirthdayRange(LocalDate from, LocalDate to, String cursor, int size);
+}
@@ -0,0 +1,16 @@
+package com.clearsolution.restfulapitask.service;
+
+import com.clearsolution.restfulapitask.data.ImportFormat;
+
+import java.io.OutputStream;
+
+public interface UserExportService {
+
+    /**
+     * Writes every user to {@code output} in id order (per shard when sharded), one per line, as rows are read from the
+     * database. The same CSV can be read back by {@link UserImportService#importUsers}.
+     *
+     * @return the number of users written
+     */
+    long exportUsers(OutputStream output, ImportFormat format);
+}
@@ -0,0 +1,15 @@
+package com.clearsolution.restfulapitask.service;
+
+import com.clearsolution.restfulapitask.data.ImportFormat;
+import com.clearsolution.restfulapitask.data.ImportSummary;
+
+import java.io.InputStream;
+
+public interface UserImportService {
+
+    /**
+     * Reads users line by line from {@code input} and stores the valid ones in chunks, each committed on its own.
+     * Rows already stored stay in place if a later chunk fails.
+     */
+    ImportSummary importUsers(InputStream input, ImportFormat format);
+}
@@ -1,18 +1,65 @@
 package com.clearsolution.restfulapitask.service;
 
+import com.clearsolution.restfulapitask.data.BatchItemResult;
+import com.clearsolution.restfulapitask.data.BirthdayCount;
+import com.clearsolution.restfulapitask.data.BirthdayGrouping;
+import com.clearsolution.restfulapitask.data.CursorPage;
 import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.model.UserField;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface UserService {
     void createUser(User user);
 
-    User updateUser(Long userId, User user);
+    List<BatchItemResult> createUsers(List<User> users);
 
-    User updateUsersFields(Long userId, User user);
+    User getUser(Long userId);
+
+    /**
+     * Only the selected properties of the user, keyed by their JSON names.
+     */
+    Map<String, Object> getUser(Long userId, Set<UserField> fields);
+
+    User getUserByEmail(String email);
+
+    /**
+     * Replaces the user. With a non-null {@code expectedVersion} the update only applies while the stored user still
+     * has that version.
+     */
+    User updateUser(Long userId, User user, Long expectedVersion);
+
+    User updateUsersFields(Long userId, User user, Long expectedVersion);
 
     void deleteUser(Long userId);
 
+    /**
+     * Users born between {@code from} and {@code to}, ordered by birthday and id. The returned list cannot be modified.
+     */
     List<User> findUsersByBirthdayRange(LocalDate from, LocalDate to);
-}
\ No newline at end of file
+
+    /**
+     * Like {@link #findUsersByBirthdayRange(LocalDate, LocalDate)}, in the same order.
+     */
+    List<Map<String, Object>> findUsersByBirthdayRange(LocalDate from, LocalDate to, Set<UserField> fields);
+
+    /**
+     * Number of users born between {@code from} and {@code to} per group, leaving out empty groups. Years and months
+     * are in calendar order, age ranges from the youngest up.
+     */
+    List<BirthdayCount> countUsersByBirthday(LocalDate from, LocalDate to, BirthdayGrouping grouping);
+
+    CursorPage<List<User>> findUsersByBirthdayRange(LocalDate from, LocalDate to, String cursor, int size);
+
+    void streamUsersByBirthdayRange(LocalDate from, LocalDate to, Consumer<User> consumer);
+
+    /**
+     * Users whose birthday falls between {@code from} and {@code days} days later inclusive, in any year, ordered by
+     * the date of that next birthday.
+     */
+    List<User> findUsersWithUpcomingBirthdays(LocalDate from, int days);
+}
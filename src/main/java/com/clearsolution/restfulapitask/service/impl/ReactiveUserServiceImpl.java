@@ -0,0 +1,175 @@
+package com.clearsolution.restfulapitask.service.impl;
+
+import com.clearsolution.restfulapitask.data.BatchItemResult;
+import com.clearsolution.restfulapitask.data.CursorPage;
+import com.clearsolution.restfulapitask.data.UserCursor;
+import com.clearsolution.restfulapitask.exception.UserAgeUnacceptableException;
+import com.clearsolution.restfulapitask.exception.UserNotFoundException;
+import com.clearsolution.restfulapitask.exception.UserVersionMismatchException;
+import com.clearsolution.restfulapitask.exception.WrongDateRangeException;
+import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.repository.ReactiveUserRepository;
+import com.clearsolution.restfulapitask.service.ReactiveUserService;
+import com.clearsolution.restfulapitask.validation.AgeValidator;
+import com.clearsolution.restfulapitask.validation.UserValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link ReactiveUserService} for the {@code reactive} profile. Behaves like {@link UserServiceImpl} minus the
+ * user cache and birthday index, which live on the servlet stack only.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveUserServiceImpl implements ReactiveUserService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveUserServiceImpl.class);
+
+    private final ReactiveUserRepository userRepository;
+    private final AgeValidator ageValidator;
+    private final UserValidator userValidator;
+
+    public ReactiveUserServiceImpl(ReactiveUserRepository userRepository, AgeValidator ageValidator, UserValidator userValidator) {
+        this.userRepository = userRepository;
+        this.ageValidator = ageValidator;
+        this.userValidator = userValidator;
+    }
+
+    @Override
+    public Mono<User> createUser(User user) {
+        if (!ageValidator.isValidAge(user.getBirthday())) {
+            logger.error("User creation failed due to unacceptable age: {}", user.getBirthday());
+            return Mono.error(new UserAgeUnacceptableException("User age is less than the acceptable limit "));
+        }
+        return userRepository.insert(user)
+                .doOnNext(created -> {
+                    logger.info("User created with ID {}", created.getId());
+                    logger.debug("User created: {}", created);
+                });
+    }
+
+    @Override
+    public Flux<BatchItemResult> createUsers(List<User> users) {
+        return Flux.range(0, users.size())
+                .concatMap(i -> {
+                    User user = users.get(i);
+                    List<String> errors = userValidator.validate(user);
+                    if (!errors.isEmpty()) {
+                        return Mono.just(BatchItemResult.rejected(i, errors));
+                    }
+                    user.setId(null);
+                    return userRepository.insert(user).map(created -> BatchItemResult.created(i, created.getId()));
+                })
+                .doOnComplete(() -> logger.info("Users batch processed: {}", users.size()));
+    }
+
+    @Override
+    public Mono<User> getUser(Long userId) {
+        return userRepository.findById(userId)
+                .switchIfEmpty(Mono.defer(() -> {
+                    logger.error("User lookup failed: User not found with ID {}", userId);
+                    return Mono.error(new UserNotFoundException("User not found"));
+                }));
+    }
+
+    @Override
+    public Mono<User> updateUser(Long userId, User user, Long expectedVersion) {
+        return userRepository.update(userId, expectedVersion, user)
+                .flatMap(updated -> {
+                    if (updated == 0) {
+                        return updateFailure(userId, expectedVersion);
+                    }
+                    user.setId(userId);
+                    // Without If-Match the new version is only known after a read
+                    user.setVersion(expectedVersion == null ? null : expectedVersion + 1);
+                    logger.info("User updated with ID {}", userId);
+                    return Mono.just(user);
+                });
+    }
+
+    @Override
+    public Mono<User> updateUsersFields(Long userId, User user, Long expectedVersion) {
+        return userRepository.updateNonNullFields(userId, expectedVersion, user)
+                .flatMap(updated -> {
+                    if (updated == 0) {
+                        return updateFailure(userId, expectedVersion);
+                    }
+                    logger.info("User fields updated with ID {}", userId);
+                    return getUser(userId);
+                });
+    }
+
+    @Override
+    public Mono<Void> deleteUser(Long userId) {
+        return userRepository.deleteById(userId)
+                .flatMap(deleted -> {
+                    if (deleted == 0) {
+                        logger.error("User deletion failed: User not found with ID {}", userId);
+                        return Mono.error(new UserNotFoundException("User not found"));
+                    }
+                    logger.info("User deleted: {}", userId);
+                    return Mono.empty();
+                });
+    }
+
+    @Override
+    public Flux<User> findUsersByBirthdayRange(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            return Flux.error(wrongRange(from, to));
+        }
+        return userRepository.findByBirthdayRange(from, to);
+    }
+
+    @Override
+    public Mono<CursorPage<List<User>>> findUsersByBirthdayRange(LocalDate from, LocalDate to, String cursor, int size) {
+        if (from.isAfter(to)) {
+            return Mono.error(wrongRange(from, to));
+        }
+        // One extra row tells whether another page exists without a separate count query
+        Flux<User> rows;
+        if (cursor == null) {
+            rows = userRepository.findByBirthdayRange(from, to, size + 1);
+        } else {
+            UserCursor after = UserCursor.decode(cursor);
+            rows = userRepository.findByBirthdayRangeAfter(from, to, after.birthday(), after.id(), size + 1);
+        }
+        return rows.collectList().map(users -> {
+            String nextCursor = null;
+            if (users.size() > size) {
+                users = new ArrayList<>(users.subList(0, size));
+                User last = users.get(size - 1);
+                nextCursor = new UserCursor(last.getBirthday(), last.getId()).encode();
+            }
+            logger.info("Users page found by birthday range: from {} to {}: {} users", from, to, users.size());
+            return new CursorPage<>(users, nextCursor);
+        });
+    }
+
+    private WrongDateRangeException wrongRange(LocalDate from, LocalDate to) {
+        logger.error("Search failed: Wrong date range provided - from: {}, to: {}", from, to);
+        return new WrongDateRangeException("Wrong range of birth date");
+    }
+
+    /**
+     * Tells apart a missing user from a stale {@code expectedVersion} after an update matched no row.
+     */
+    private Mono<User> updateFailure(Long userId, Long expectedVersion) {
+        Mono<Boolean> exists = expectedVersion == null ? Mono.just(false) : userRepository.findById(userId).hasElement();
+        return exists.flatMap(found -> {
+            if (found) {
+                logger.error("User update failed: User with ID {} is no longer at version {}", userId, expectedVersion);
+                return Mono.error(new UserVersionMismatchException("User was modified by another request"));
+            }
+            logger.error("User update failed: User not found with ID {}", userId);
+            return Mono.error(new UserNotFoundException("User not found"));
+        });
+    }
+}
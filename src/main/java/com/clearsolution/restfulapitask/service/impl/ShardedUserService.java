@@ -0,0 +1,272 @@
+package com.clearsolution.restfulapitask.service.impl;
+
+import com.clearsolution.restfulapitask.data.BatchItemResult;
+import com.clearsolution.restfulapitask.data.BirthdayCount;
+import com.clearsolution.restfulapitask.data.BirthdayGrouping;
+import com.clearsolution.restfulapitask.data.CursorPage;
+import com.clearsolution.restfulapitask.data.UserCursor;
+import com.clearsolution.restfulapitask.exception.UserNotFoundException;
+import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.model.UserField;
+import com.clearsolution.restfulapitask.service.UserService;
+import com.clearsolution.restfulapitask.shard.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * {@link UserService} for sharding mode. Calls for one user run on the shard holding it; searches run on every shard
+ * at once and the results are merged into the order a single database would have returned.
+ * <p>
+ * Each call is bound to its shard before it enters {@link UserServiceImpl}, so the transactions there take their
+ * connection from that shard. A transaction never spans shards: a batch spread over several shards can be stored on
+ * some of them when another fails. Email uniqueness rests on the index of each shard, which covers new users since
+ * their shard follows from the email, but not an email later changed to one stored on another shard.
+ */
+@Service
+@Primary
+@Profile("!reactive")
+@ConditionalOnProperty(name = "app.sharding.enabled", havingValue = "true")
+public class ShardedUserService implements UserService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedUserService.class);
+
+    private static final int STREAM_PAGE_SIZE = 1000;
+
+    private final UserServiceImpl userService;
+    private final ShardRouter shardRouter;
+
+    public ShardedUserService(UserServiceImpl userService, ShardRouter shardRouter) {
+        this.userService = userService;
+        this.shardRouter = shardRouter;
+    }
+
+    @Override
+    public void createUser(User user) {
+        shardRouter.onShard(shardRouter.shardFor(user.getEmail()), () -> {
+            userService.createUser(user);
+            return null;
+        });
+    }
+
+    /**
+     * Every shard stores its part of the batch in its own transaction, all shards at the same time.
+     */
+    @Override
+    public List<BatchItemResult> createUsers(List<User> users) {
+        List<List<Integer>> indexesByShard = new ArrayList<>(shardRouter.size());
+        for (int shard = 0; shard < shardRouter.size(); shard++) {
+            indexesByShard.add(new ArrayList<>());
+        }
+        for (int i = 0; i < users.size(); i++) {
+            indexesByShard.get(shardRouter.shardFor(users.get(i).getEmail())).add(i);
+        }
+        List<List<BatchItemResult>> shardResults = shardRouter.onEachShard(() -> {
+            List<Integer> indexes = indexesByShard.get(ShardRouter.currentShard());
+            if (indexes.isEmpty()) {
+                return List.of();
+            }
+            List<User> shardUsers = new ArrayList<>(indexes.size());
+            indexes.forEach(index -> shardUsers.add(users.get(index)));
+            return userService.createUsers(shardUsers);
+        });
+        BatchItemResult[] results = new BatchItemResult[users.size()];
+        for (int shard = 0; shard < shardResults.size(); shard++) {
+            List<Integer> indexes = indexesByShard.get(shard);
+            for (BatchItemResult result : shardResults.get(shard)) {
+                int index = indexes.get(result.index());
+                results[index] = new BatchItemResult(index, result.created(), result.id(), result.errors());
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public User getUser(Long userId) {
+        return onShardOf(userId, () -> userService.getUser(userId));
+    }
+
+    @Override
+    public Map<String, Object> getUser(Long userId, Set<UserField> fields) {
+        return onShardOf(userId, () -> userService.getUser(userId, fields));
+    }
+
+    /**
+     * Looks on the shard the email hashes to first, where the user was created with it, and on all shards when its
+     * email was changed since.
+     */
+    @Override
+    public User getUserByEmail(String email) {
+        try {
+            return shardRouter.onShard(shardRouter.shardFor(email), () -> userService.getUserByEmail(email));
+        } catch (UserNotFoundException e) {
+            List<Optional<User>> found = shardRouter.onEachShard(() -> {
+                try {
+                    return Optional.of(userService.getUserByEmail(email));
+                } catch (UserNotFoundException notOnShard) {
+                    return Optional.empty();
+                }
+            });
+            return found.stream().flatMap(Optional::stream).findFirst().orElseThrow(() -> e);
+        }
+    }
+
+    @Override
+    public User updateUser(Long userId, User user, Long expectedVersion) {
+        return onShardOf(userId, () -> userService.updateUser(userId, user, expectedVersion));
+    }
+
+    @Override
+    public User updateUsersFields(Long userId, User user, Long expectedVersion) {
+        return onShardOf(userId, () -> userService.updateUsersFields(userId, user, expectedVersion));
+    }
+
+    @Override
+    public void deleteUser(Long userId) {
+        onShardOf(userId, () -> {
+            userService.deleteUser(userId);
+            return null;
+        });
+    }
+
+    @Override
+    public List<User> findUsersByBirthdayRange(LocalDate from, LocalDate to) {
+        List<User> users = mergeSorted(shardRouter.onEachShard(() -> userService.findUsersByBirthdayRange(from, to)),
+                UserServiceImpl.BY_BIRTHDAY_AND_ID);
+        logger.info("Users found by birthday range on {} shards: from {} to {}: {} users", shardRouter.size(), from, to, users.size());
+        return users;
+    }
+
+    /**
+     * Birthday and id are selected on every shard to merge by, and dropped again unless they were asked for.
+     */
+    @Override
+    public List<Map<String, Object>> findUsersByBirthdayRange(LocalDate from, LocalDate to, Set<UserField> fields) {
+        Set<UserField> mergeFields = EnumSet.copyOf(fields);
+        mergeFields.add(UserField.BIRTHDAY);
+        mergeFields.add(UserField.ID);
+        List<Map<String, Object>> rows = mergeSorted(shardRouter.onEachShard(() -> userService.findUsersByBirthdayRange(from, to, mergeFields)),
+                Comparator.comparing((Map<String, Object> row) -> (LocalDate) row.get(UserField.BIRTHDAY.attribute()))
+                        .thenComparing(row -> (Long) row.get(UserField.ID.attribute())));
+        for (UserField field : List.of(UserField.BIRTHDAY, UserField.ID)) {
+            if (!fields.contains(field)) {
+                rows.forEach(row -> row.remove(field.attribute()));
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    public List<BirthdayCount> countUsersByBirthday(LocalDate from, LocalDate to, BirthdayGrouping grouping) {
+        Map<String, Long> totals = new HashMap<>();
+        for (List<BirthdayCount> shardCounts : shardRouter.onEachShard(() -> userService.countUsersByBirthday(from, to, grouping))) {
+            shardCounts.forEach(count -> totals.merge(count.group(), count.count(), Long::sum));
+        }
+        List<BirthdayCount> counts = new ArrayList<>(totals.size());
+        totals.forEach((group, count) -> counts.add(new BirthdayCount(group, count)));
+        // Years and months sort as text; age ranges by their lower bound
+        counts.sort(grouping == BirthdayGrouping.AGE
+                ? Comparator.comparingInt(count -> Integer.parseInt(count.group().substring(0, count.group().indexOf('-'))))
+                : Comparator.comparing(BirthdayCount::group));
+        return counts;
+    }
+
+    /**
+     * Every shard returns its own next page after the cursor; the first {@code size} users of all of them are the
+     * next page overall, and the cursor stays valid across shards because it is a position in the sort order.
+     */
+    @Override
+    public CursorPage<List<User>> findUsersByBirthdayRange(LocalDate from, LocalDate to, String cursor, int size) {
+        List<CursorPage<List<User>>> pages = shardRouter.onEachShard(() -> userService.findUsersByBirthdayRange(from, to, cursor, size));
+        List<List<User>> shardUsers = new ArrayList<>(pages.size());
+        boolean more = false;
+        for (CursorPage<List<User>> page : pages) {
+            shardUsers.add(page.data());
+            more |= page.nextCursor() != null;
+        }
+        List<User> users = mergeSorted(shardUsers, UserServiceImpl.BY_BIRTHDAY_AND_ID);
+        if (users.size() > size) {
+            users = new ArrayList<>(users.subList(0, size));
+            more = true;
+        }
+        String nextCursor = null;
+        if (more && !users.isEmpty()) {
+            User last = users.get(users.size() - 1);
+            nextCursor = new UserCursor(last.getBirthday(), last.getId()).encode();
+        }
+        return new CursorPage<>(users, nextCursor);
+    }
+
+    /**
+     * Goes through the range in pages merged from all shards, so users arrive in order with only one page in memory.
+     */
+    @Override
+    public void streamUsersByBirthdayRange(LocalDate from, LocalDate to, Consumer<User> consumer) {
+        String cursor = null;
+        do {
+            CursorPage<List<User>> page = findUsersByBirthdayRange(from, to, cursor, STREAM_PAGE_SIZE);
+            page.data().forEach(consumer);
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        logger.info("Users streamed by birthday range on {} shards: from {} to {}", shardRouter.size(), from, to);
+    }
+
+    @Override
+    public List<User> findUsersWithUpcomingBirthdays(LocalDate from, int days) {
+        return mergeSorted(shardRouter.onEachShard(() -> userService.findUsersWithUpcomingBirthdays(from, days)),
+                Comparator.comparing((User user) -> UserServiceImpl.nextBirthday(user.getBirthday(), from)).thenComparing(User::getId));
+    }
+
+    private <T> T onShardOf(Long userId, Supplier<T> call) {
+        int shard = userId == null ? -1 : shardRouter.shardOf(userId);
+        if (shard < 0) {
+            logger.error("User lookup failed: User not found with ID {}", userId);
+            throw new UserNotFoundException("User not found");
+        }
+        return shardRouter.onShard(shard, call);
+    }
+
+    /**
+     * K-way merge of lists that are each sorted by {@code order}.
+     */
+    static <T> List<T> mergeSorted(List<List<T>> lists, Comparator<? super T> order) {
+        int total = 0;
+        for (List<T> list : lists) {
+            total += list.size();
+        }
+        List<T> merged = new ArrayList<>(total);
+        int[] next = new int[lists.size()];
+        PriorityQueue<Integer> heads = new PriorityQueue<>(Math.max(1, lists.size()),
+                (a, b) -> order.compare(lists.get(a).get(next[a]), lists.get(b).get(next[b])));
+        for (int i = 0; i < lists.size(); i++) {
+            if (!lists.get(i).isEmpty()) {
+                heads.add(i);
+            }
+        }
+        while (!heads.isEmpty()) {
+            int i = heads.poll();
+            merged.add(lists.get(i).get(next[i]++));
+            if (next[i] < lists.get(i).size()) {
+                heads.add(i);
+            }
+        }
+        return merged;
+    }
+}
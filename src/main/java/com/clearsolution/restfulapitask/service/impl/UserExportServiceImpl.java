@@ -0,0 +1,170 @@
+package com.clearsolution.restfulapitask.service.impl;
+
+import com.clearsolution.restfulapitask.data.ImportFormat;
+import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.repository.UserRepository;
+import com.clearsolution.restfulapitask.service.UserExportService;
+import com.clearsolution.restfulapitask.shard.ShardRouter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Full-table export over a database cursor. Rows are loaded read-only, written and detached one at a time, so memory
+ * use does not depend on the table size; output is only flushed by the buffers, never per row. With sharding the
+ * shards are exported one after another into the same output.
+ */
+@Service
+@Profile("!reactive")
+public class UserExportServiceImpl implements UserExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserExportServiceImpl.class);
+
+    private static final String CSV_HEADER = "id,email,firstName,lastName,birthday,address,phoneNumber,version\n";
+
+    private final UserRepository userRepository;
+    private final EntityManager entityManager;
+    private final ObjectWriter userWriter;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ShardRouter shardRouter;
+
+    public UserExportServiceImpl(UserRepository userRepository, EntityManager entityManager, ObjectMapper objectMapper,
+                                 PlatformTransactionManager transactionManager, ObjectProvider<ShardRouter> shardRouter) {
+        this.userRepository = userRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.shardRouter = shardRouter.getIfAvailable();
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.userWriter = objectMapper.writerFor(User.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    @Override
+    public long exportUsers(OutputStream output, ImportFormat format) {
+        long started = System.nanoTime();
+        long count = 0;
+        try {
+            UserSink sink = format == ImportFormat.CSV ? csvSink(output) : ndjsonSink(output);
+            if (shardRouter == null) {
+                count = exportAll(sink);
+            } else {
+                // One shard after another, so the output is a single stream with one CSV header
+                for (int shard = 0; shard < shardRouter.size(); shard++) {
+                    count += shardRouter.onShard(shard, () -> exportAll(sink));
+                }
+            }
+            sink.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            logger.info("Users exported as {}: {} users in {} ms", format, count, (System.nanoTime() - started) / 1_000_000);
+        }
+        return count;
+    }
+
+    private long exportAll(UserSink sink) {
+        Long count = readOnlyTransaction.execute(status -> {
+            long written = 0;
+            try (Stream<User> users = userRepository.streamAllUsers()) {
+                Iterator<User> iterator = users.iterator();
+                while (iterator.hasNext()) {
+                    User user = iterator.next();
+                    sink.write(user);
+                    entityManager.detach(user);
+                    written++;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return written;
+        });
+        return count == null ? 0 : count;
+    }
+
+    private static UserSink csvSink(OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        return new UserSink() {
+            @Override
+            public void write(User user) throws IOException {
+                writer.write(String.valueOf(user.getId()));
+                writeCsvField(writer, user.getEmail());
+                writeCsvField(writer, user.getFirstName());
+                writeCsvField(writer, user.getLastName());
+                writeCsvField(writer, user.getBirthday() == null ? null : user.getBirthday().toString());
+                writeCsvField(writer, user.getAddress());
+                writeCsvField(writer, user.getPhoneNumber());
+                writeCsvField(writer, user.getVersion() == null ? null : user.getVersion().toString());
+                writer.write('\n');
+            }
+
+            @Override
+            public void flush() throws IOException {
+                writer.flush();
+            }
+        };
+    }
+
+    private UserSink ndjsonSink(OutputStream output) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(output);
+        // Lines are ended by hand; the default separator would put a space in front of every user but the first
+        generator.setRootValueSeparator(null);
+        return new UserSink() {
+            @Override
+            public void write(User user) throws IOException {
+                userWriter.writeValue(generator, user);
+                generator.writeRaw('\n');
+            }
+
+            @Override
+            public void flush() throws IOException {
+                generator.flush();
+            }
+        };
+    }
+
+    /**
+     * Writes the separating comma and the value, quoted when it holds a comma, quote or line break. Null is left
+     * empty, as the import reads it back.
+     */
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        writer.write(',');
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private interface UserSink {
+
+        void write(User user) throws IOException;
+
+        void flush() throws IOException;
+    }
+}
@@ -0,0 +1,291 @@
+package com.clearsolution.restfulapitask.service.impl;
+
+import com.clearsolution.restfulapitask.cache.BirthdaySearchCache;
+import com.clearsolution.restfulapitask.data.ImportFormat;
+import com.clearsolution.restfulapitask.data.ImportRejection;
+import com.clearsolution.restfulapitask.data.ImportSummary;
+import com.clearsolution.restfulapitask.events.UserEventLog;
+import com.clearsolution.restfulapitask.exception.MalformedImportException;
+import com.clearsolution.restfulapitask.index.BirthdayIndex;
+import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.repository.UserBulkRepository;
+import com.clearsolution.restfulapitask.repository.UserRepository;
+import com.clearsolution.restfulapitask.service.UserImportService;
+import com.clearsolution.restfulapitask.shard.ShardRouter;
+import com.clearsolution.restfulapitask.validation.UserValidator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Bulk import that never holds more than one chunk of users in memory. Rows are checked with the same rules as
+ * {@code POST /batch}, and each chunk is written with {@link UserBulkRepository} in its own transaction. In sharding
+ * mode every shard gets its part of the chunk in a transaction of its own.
+ */
+@Service
+@Profile("!reactive")
+public class UserImportServiceImpl implements UserImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserImportServiceImpl.class);
+
+    // Keeps the response small however bad the upload is; the summary still counts every rejected row
+    private static final int MAX_REPORTED_REJECTIONS = 1000;
+    private static final String EMAIL_IN_USE = "Email is already in use";
+
+    private final UserBulkRepository userBulkRepository;
+    private final UserRepository userRepository;
+    private final UserValidator userValidator;
+    private final BirthdayIndex birthdayIndex;
+    private final BirthdaySearchCache birthdaySearchCache;
+    private final UserEventLog userEventLog;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final int chunkSize;
+
+    public UserImportServiceImpl(UserBulkRepository userBulkRepository, UserRepository userRepository, UserValidator userValidator,
+                                 BirthdayIndex birthdayIndex, BirthdaySearchCache birthdaySearchCache, UserEventLog userEventLog,
+                                 ObjectMapper objectMapper, PlatformTransactionManager transactionManager, ObjectProvider<ShardRouter> shardRouter,
+                                 @Value("${app.import.chunk-size}") int chunkSize) {
+        this.userBulkRepository = userBulkRepository;
+        this.userRepository = userRepository;
+        this.userValidator = userValidator;
+        this.birthdayIndex = birthdayIndex;
+        this.birthdaySearchCache = birthdaySearchCache;
+        this.userEventLog = userEventLog;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shardRouter = shardRouter.getIfAvailable();
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public ImportSummary importUsers(InputStream input, ImportFormat format) {
+        long started = System.nanoTime();
+        Progress progress = new Progress();
+        List<User> chunk = new ArrayList<>(chunkSize);
+        List<Long> chunkLines = new ArrayList<>(chunkSize);
+        List<BiConsumer<User, String>> columns = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (format == ImportFormat.CSV && columns == null) {
+                    columns = parseHeader(line);
+                    continue;
+                }
+                User user;
+                try {
+                    user = format == ImportFormat.CSV ? parseCsvRow(line, columns) : parseJsonRow(line);
+                } catch (IllegalArgumentException e) {
+                    progress.reject(lineNumber, List.of(e.getMessage()));
+                    continue;
+                }
+                List<String> errors = userValidator.validate(user);
+                if (!errors.isEmpty()) {
+                    progress.reject(lineNumber, errors);
+                    continue;
+                }
+                chunk.add(user);
+                chunkLines.add(lineNumber);
+                if (chunk.size() == chunkSize) {
+                    write(chunk, chunkLines, progress);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        write(chunk, chunkLines, progress);
+        progress.rejections.sort(Comparator.comparingLong(ImportRejection::line));
+        logger.info("Users imported from {}: {} imported, {} rejected in {} ms", format, progress.imported, progress.rejected,
+                (System.nanoTime() - started) / 1_000_000);
+        return new ImportSummary(progress.imported, progress.rejected, progress.rejections);
+    }
+
+    private void write(List<User> chunk, List<Long> chunkLines, Progress progress) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        if (shardRouter == null) {
+            writeChunk(chunk, chunkLines, progress);
+        } else {
+            List<List<User>> shardChunks = new ArrayList<>(shardRouter.size());
+            List<List<Long>> shardLines = new ArrayList<>(shardRouter.size());
+            for (int shard = 0; shard < shardRouter.size(); shard++) {
+                shardChunks.add(new ArrayList<>());
+                shardLines.add(new ArrayList<>());
+            }
+            for (int i = 0; i < chunk.size(); i++) {
+                int shard = shardRouter.shardFor(chunk.get(i).getEmail());
+                shardChunks.get(shard).add(chunk.get(i));
+                shardLines.get(shard).add(chunkLines.get(i));
+            }
+            for (int shard = 0; shard < shardRouter.size(); shard++) {
+                int target = shard;
+                shardRouter.onShard(shard, () -> {
+                    writeChunk(shardChunks.get(target), shardLines.get(target), progress);
+                    return null;
+                });
+            }
+        }
+        chunk.clear();
+        chunkLines.clear();
+    }
+
+    private void writeChunk(List<User> chunk, List<Long> chunkLines, Progress progress) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<User> accepted = new ArrayList<>(chunk.size());
+        transactionTemplate.executeWithoutResult(status -> {
+            List<String> emails = new ArrayList<>(chunk.size());
+            chunk.forEach(user -> emails.add(user.getEmail()));
+            Set<String> taken = new HashSet<>(userRepository.findExistingEmails(emails));
+            Set<String> seen = new HashSet<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                User user = chunk.get(i);
+                if (taken.contains(user.getEmail()) || !seen.add(user.getEmail())) {
+                    progress.reject(chunkLines.get(i), List.of(EMAIL_IN_USE));
+                } else {
+                    accepted.add(user);
+                }
+            }
+            userBulkRepository.insert(accepted);
+        });
+        accepted.forEach(user -> birthdayIndex.put(user.getId(), user.getBirthday()));
+        if (!accepted.isEmpty()) {
+            birthdaySearchCache.invalidateAll();
+        }
+        userEventLog.created(accepted);
+        progress.imported += accepted.size();
+    }
+
+    /**
+     * Maps the header columns, named like the JSON properties of {@link User}, to the setters filling them. The
+     * {@code id} and {@code version} columns of an export are accepted and ignored, as new ids are always assigned.
+     */
+    private static List<BiConsumer<User, String>> parseHeader(String line) {
+        List<BiConsumer<User, String>> columns = new ArrayList<>();
+        for (String name : parseCsvLine(line)) {
+            columns.add(switch (name.trim()) {
+                case "email" -> User::setEmail;
+                case "firstName" -> User::setFirstName;
+                case "lastName" -> User::setLastName;
+                case "birthday" -> (user, value) -> user.setBirthday(parseDate(value));
+                case "address" -> User::setAddress;
+                case "phoneNumber" -> User::setPhoneNumber;
+                case "id", "version" -> (user, value) -> {
+                };
+                default -> throw new MalformedImportException("Unknown column: " + name);
+            });
+        }
+        return columns;
+    }
+
+    private static User parseCsvRow(String line, List<BiConsumer<User, String>> columns) {
+        List<String> values = parseCsvLine(line);
+        if (values.size() != columns.size()) {
+            throw new IllegalArgumentException("Expected " + columns.size() + " columns but found " + values.size());
+        }
+        User user = new User();
+        for (int i = 0; i < values.size(); i++) {
+            String value = values.get(i);
+            if (!value.isEmpty()) {
+                columns.get(i).accept(user, value);
+            }
+        }
+        return user;
+    }
+
+    private User parseJsonRow(String line) {
+        try {
+            User user = objectMapper.readValue(line, User.class);
+            user.setId(null);
+            return user;
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON");
+        }
+    }
+
+    private static LocalDate parseDate(String value) {
+        try {
+            return LocalDate.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Birthday must be a date like 1990-05-11");
+        }
+    }
+
+    /**
+     * Splits one CSV record; fields may be quoted, with {@code ""} for a quote inside. Records spanning several
+     * lines are not supported.
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    value.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    private static final class Progress {
+        private final List<ImportRejection> rejections = new ArrayList<>();
+        private long imported;
+        private long rejected;
+
+        private void reject(long line, List<String> errors) {
+            rejected++;
+            if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+                rejections.add(new ImportRejection(line, errors));
+            }
+        }
+    }
+}
@@ -1,108 +1,513 @@
 package com.clearsolution.restfulapitask.service.impl;
 
+import com.clearsolution.restfulapitask.cache.BirthdaySearchCache;
+import com.clearsolution.restfulapitask.cache.UserCache;
+import com.clearsolution.restfulapitask.data.BatchItemResult;
+import com.clearsolution.restfulapitask.data.BirthdayCount;
+import com.clearsolution.restfulapitask.data.BirthdayGrouping;
+import com.clearsolution.restfulapitask.data.CursorPage;
+import com.clearsolution.restfulapitask.data.UserCursor;
+import com.clearsolution.restfulapitask.events.UserEventLog;
 import com.clearsolution.restfulapitask.exception.UserAgeUnacceptableException;
 import com.clearsolution.restfulapitask.exception.UserNotFoundException;
+import com.clearsolution.restfulapitask.exception.UserVersionMismatchException;
 import com.clearsolution.restfulapitask.exception.WrongDateRangeException;
+import com.clearsolution.restfulapitask.index.BirthdayIndex;
+import com.clearsolution.restfulapitask.model.BirthdayPeriodCount;
 import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.model.UserField;
 import com.clearsolution.restfulapitask.repository.UserRepository;
 import com.clearsolution.restfulapitask.service.UserService;
 import com.clearsolution.restfulapitask.validation.AgeValidator;
+import com.clearsolution.restfulapitask.validation.UserValidator;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
+import java.time.MonthDay;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
+@Profile("!reactive")
+@Timed("users.service")
 public class UserServiceImpl implements UserService {
 
+    // Multiple of hibernate.jdbc.batch_size; bounds the persistence context during bulk inserts
+    private static final int BATCH_FLUSH_SIZE = 500;
+    // Keeps IN lists of id and email lookups well below the bind parameter limits of the drivers
+    private static final int HYDRATION_CHUNK_SIZE = 1000;
+    static final Comparator<User> BY_BIRTHDAY_AND_ID = Comparator.comparing(User::getBirthday).thenComparing(User::getId);
+    // Month-day keys as stored in User.birthMonthDay
+    private static final int FIRST_MONTH_DAY = 101;
+    private static final int FEBRUARY_28 = 228;
+    private static final int FEBRUARY_29 = 229;
+    private static final int LAST_MONTH_DAY = 1231;
+    private static final int DAYS_IN_YEAR = 365;
+    private static final String EMAIL_IN_USE = "Email is already in use";
+    private static final int AGE_BUCKET_YEARS = 10;
+
     private final UserRepository userRepository;
     private final AgeValidator ageValidator;
+    private final EntityManager entityManager;
+    private final UserValidator userValidator;
+    private final UserCache userCache;
+    private final BirthdayIndex birthdayIndex;
+    private final BirthdaySearchCache birthdaySearchCache;
+    private final UserEventLog userEventLog;
+    private final TransactionTemplate readOnlyTransaction;
+    private final DistributionSummary searchResults;
     private static final Logger logger = LoggerFactory.getLogger(UserServiceImpl.class);
 
-    public UserServiceImpl(UserRepository userRepository, AgeValidator ageValidator) {
+    public UserServiceImpl(UserRepository userRepository, AgeValidator ageValidator, EntityManager entityManager,
+                           UserValidator userValidator, UserCache userCache, BirthdayIndex birthdayIndex, BirthdaySearchCache birthdaySearchCache,
+                           UserEventLog userEventLog, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
         this.userRepository = userRepository;
         this.ageValidator = ageValidator;
+        this.entityManager = entityManager;
+        this.userValidator = userValidator;
+        this.userCache = userCache;
+        this.birthdayIndex = birthdayIndex;
+        this.birthdaySearchCache = birthdaySearchCache;
+        this.userEventLog = userEventLog;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.searchResults = DistributionSummary.builder("users.search.results")
+                .description("Users returned per birthday range search")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     @Override
     public void createUser(User user) {
         if (ageValidator.isValidAge(user.getBirthday())) {
             userRepository.save(user);
-            logger.info("User created: {}", user);
+            Long userId = user.getId();
+            LocalDate birthday = user.getBirthday();
+            afterCommit(() -> birthdayIndex.put(userId, birthday));
+            birthdaySearchCache.invalidate(user.getBirthday());
+            userEventLog.created(user);
+            logger.info("User created with ID {}", user.getId());
+            logger.debug("User created: {}", user);
         } else {
-            logger.error("User creation failed due to unacceptable age: {}", user);
+            logger.error("User creation failed due to unacceptable age: {}", user.getBirthday());
             throw new UserAgeUnacceptableException("User age is less than the acceptable limit ");
         }
     }
 
     @Override
-    public User updateUser(Long userId, User user) {
-        User currentUser = userRepository.findById(userId).orElseThrow(() -> {
-            logger.error("User update failed: User not found with ID {}", userId);
+    @Transactional
+    public List<BatchItemResult> createUsers(List<User> users) {
+        List<BatchItemResult> results = new ArrayList<>(users.size());
+        Set<String> takenEmails = findExistingEmails(users);
+        Set<String> batchEmails = new HashSet<>();
+        List<User> created = new ArrayList<>();
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            List<String> errors = new ArrayList<>(userValidator.validate(user));
+            String email = user.getEmail();
+            if (email != null && (takenEmails.contains(email) || !batchEmails.add(email))) {
+                errors.add(EMAIL_IN_USE);
+            }
+            if (!errors.isEmpty()) {
+                results.add(BatchItemResult.rejected(i, errors));
+                continue;
+            }
+            user.setId(null);
+            entityManager.persist(user);
+            results.add(BatchItemResult.created(i, user.getId()));
+            created.add(user);
+            if (created.size() % BATCH_FLUSH_SIZE == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        if (!created.isEmpty()) {
+            afterCommit(() -> created.forEach(user -> birthdayIndex.put(user.getId(), user.getBirthday())));
+            birthdaySearchCache.invalidateAll();
+        }
+        userEventLog.created(created);
+        logger.info("Users batch created: {} of {}", created.size(), users.size());
+        return results;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public User getUser(Long userId) {
+        return userCache.get(userId, userRepository::findById).orElseThrow(() -> {
+            logger.error("User lookup failed: User not found with ID {}", userId);
             return new UserNotFoundException("User not found");
         });
+    }
 
-        currentUser.setEmail(user.getEmail());
-        currentUser.setFirstName(user.getFirstName());
-        currentUser.setLastName(user.getLastName());
-        currentUser.setBirthday(user.getBirthday());
-        currentUser.setAddress(user.getAddress());
-        currentUser.setPhoneNumber(user.getPhoneNumber());
-        User updatedUser = userRepository.save(currentUser);
-        logger.info("User updated: {}", updatedUser);
-        return updatedUser;
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Object> getUser(Long userId, Set<UserField> fields) {
+        // A cached user answers any selection; a miss reads just the selected columns and leaves the cache alone
+        Optional<Map<String, Object>> user = userCache.getIfPresent(userId)
+                .map(cached -> UserField.project(cached, fields))
+                .or(() -> userRepository.findFieldsById(userId, fields));
+        return user.orElseThrow(() -> {
+            logger.error("User lookup failed: User not found with ID {}", userId);
+            return new UserNotFoundException("User not found");
+        });
     }
 
     @Override
-    public User updateUsersFields(Long userId, User user) {
-        User currentUser = userRepository.findById(userId).orElseThrow(() -> {
-            logger.error("User update failed: User not found with ID {}", userId);
+    @Transactional(readOnly = true)
+    public User getUserByEmail(String email) {
+        return userRepository.findByEmail(email).orElseThrow(() -> {
+            logger.error("User lookup failed: User not found by email");
             return new UserNotFoundException("User not found");
         });
-        currentUser.setId(userId);
-        if (user.getEmail() != null) {
-            currentUser.setEmail(user.getEmail());
-        }
-        if (user.getFirstName() != null) {
-            currentUser.setFirstName(user.getFirstName());
-        }
-        if (user.getLastName() != null) {
-            currentUser.setLastName(user.getLastName());
-        }
-        if (user.getBirthday() != null) {
-            currentUser.setBirthday(user.getBirthday());
+    }
+
+    @Override
+    @Transactional
+    public User updateUser(Long userId, User user, Long expectedVersion) {
+        int updated = expectedVersion == null
+                ? userRepository.updateUser(userId, user)
+                : userRepository.updateUserIfVersion(userId, expectedVersion, user);
+        if (updated == 0) {
+            throw updateFailure(userId, expectedVersion);
         }
-        if (user.getAddress() != null) {
-            currentUser.setAddress(user.getAddress());
+        // Every column was replaced, so the request body is the new state of the row. Without an expected version the
+        // new one is read back, still under the row lock, as change event consumers order updates by it
+        user.setId(userId);
+        user.setVersion(expectedVersion == null ? userRepository.findVersionById(userId) : expectedVersion + 1);
+        userCache.put(user);
+        LocalDate birthday = user.getBirthday();
+        afterCommit(() -> birthdayIndex.put(userId, birthday));
+        birthdaySearchCache.invalidate(userId, user.getBirthday());
+        userEventLog.updated(user);
+        logger.info("User updated with ID {}", userId);
+        logger.debug("User updated: {}", user);
+        return user;
+    }
+
+    @Override
+    @Transactional
+    public User updateUsersFields(Long userId, User user, Long expectedVersion) {
+        if (userRepository.updateNonNullFields(userId, expectedVersion, user) == 0) {
+            throw updateFailure(userId, expectedVersion);
         }
-        if (user.getPhoneNumber() != null) {
-            currentUser.setPhoneNumber(user.getPhoneNumber());
+        // A cached copy of the version that was just replaced only needs the patch applied; otherwise the row is
+        // read back already updated
+        User updatedUser = userCache.getIfPresent(userId)
+                .filter(cached -> expectedVersion != null && expectedVersion.equals(cached.getVersion()))
+                .orElse(null);
+        if (updatedUser != null) {
+            applyNonNullFields(user, updatedUser);
+            if (hasNonNullFields(user)) {
+                updatedUser.setVersion(expectedVersion + 1);
+            }
+        } else {
+            // Read past the cache, which must not take this transaction's state before it commits
+            updatedUser = userRepository.findById(userId).orElseThrow(() -> {
+                logger.error("User update failed: User not found with ID {}", userId);
+                return new UserNotFoundException("User not found");
+            });
         }
-        User updatedUser = userRepository.save(currentUser);
-        logger.info("User fields updated: {}", updatedUser);
+        userCache.put(updatedUser);
+        LocalDate birthday = updatedUser.getBirthday();
+        afterCommit(() -> birthdayIndex.put(userId, birthday));
+        birthdaySearchCache.invalidate(userId, updatedUser.getBirthday());
+        userEventLog.updated(updatedUser);
+        logger.info("User fields updated with ID {}", userId);
+        logger.debug("User fields updated: {}", updatedUser);
         return updatedUser;
     }
 
     @Override
+    @Transactional
     public void deleteUser(Long userId) {
-        User currentUser = userRepository.findById(userId).orElseThrow(() -> {
+        if (userRepository.deleteUserById(userId) == 0) {
             logger.error("User deletion failed: User not found with ID {}", userId);
-            return new UserNotFoundException("User not found");
-        });
-        userRepository.delete(currentUser);
-        logger.info("User deleted: {}", currentUser);
+            throw new UserNotFoundException("User not found");
+        }
+        userCache.evict(userId);
+        afterCommit(() -> birthdayIndex.remove(userId));
+        birthdaySearchCache.invalidate(userId, null);
+        userEventLog.deleted(userId);
+        logger.info("User deleted: {}", userId);
     }
 
+    /**
+     * Identical searches running at the same time share one query, so only the one running it holds a transaction
+     * and a connection while the others wait for its result.
+     */
     @Override
     public List<User> findUsersByBirthdayRange(LocalDate from, LocalDate to) {
+        validateRange(from, to);
+        List<User> users = birthdaySearchCache.get(from, to, () -> readOnlyTransaction.execute(status -> birthdayIndex.isReady()
+                ? findIndexedUsersByBirthdayRange(from, to)
+                : userRepository.findUsersByBirthDateRange(from, to)));
+        searchResults.record(users.size());
+        logger.info("Users found by birthday range: from {} to {}: {} users", from, to, users.size());
+        logger.debug("Users found by birthday range: from {} to {}: {}", from, to, users);
+        return users;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findUsersByBirthdayRange(LocalDate from, LocalDate to, Set<UserField> fields) {
+        validateRange(from, to);
+        List<Map<String, Object>> users = userRepository.findFieldsByBirthDateRange(from, to, fields);
+        searchResults.record(users.size());
+        logger.info("Users found by birthday range: from {} to {}: {} users with fields {}", from, to, users.size(), fields);
+        return users;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<BirthdayCount> countUsersByBirthday(LocalDate from, LocalDate to, BirthdayGrouping grouping) {
+        validateRange(from, to);
+        List<BirthdayCount> counts = switch (grouping) {
+            case YEAR -> countByBirthdayPeriod(from, to, false);
+            case MONTH -> countByBirthdayPeriod(from, to, true);
+            case AGE -> countByAge(from, to, LocalDate.now());
+        };
+        logger.info("Users counted by birthday {} from {} to {}: {} groups", grouping, from, to, counts.size());
+        return counts;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<List<User>> findUsersByBirthdayRange(LocalDate from, LocalDate to, String cursor, int size) {
+        validateRange(from, to);
+        // One extra row tells whether another page exists without a separate count query
+        Limit limit = Limit.of(size + 1);
+        List<User> users;
+        if (cursor == null) {
+            users = userRepository.findUsersByBirthDateRange(from, to, limit);
+        } else {
+            UserCursor after = UserCursor.decode(cursor);
+            users = userRepository.findUsersByBirthDateRangeAfter(from, to, after.birthday(), after.id(), limit);
+        }
+        String nextCursor = null;
+        if (users.size() > size) {
+            users = new ArrayList<>(users.subList(0, size));
+            User last = users.get(size - 1);
+            nextCursor = new UserCursor(last.getBirthday(), last.getId()).encode();
+        }
+        searchResults.record(users.size());
+        logger.info("Users page found by birthday range: from {} to {}: {} users", from, to, users.size());
+        return new CursorPage<>(users, nextCursor);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamUsersByBirthdayRange(LocalDate from, LocalDate to, Consumer<User> consumer) {
+        validateRange(from, to);
+        try (Stream<User> users = userRepository.streamUsersByBirthDateRange(from, to)) {
+            // Detaching every row keeps the persistence context from growing with the range
+            users.forEach(user -> {
+                consumer.accept(user);
+                entityManager.detach(user);
+            });
+        }
+        logger.info("Users streamed by birthday range: from {} to {}", from, to);
+    }
+
+    /**
+     * Tells apart a missing user from a stale {@code expectedVersion} after an update matched no row.
+     */
+    private RuntimeException updateFailure(Long userId, Long expectedVersion) {
+        if (expectedVersion != null && userRepository.existsById(userId)) {
+            logger.error("User update failed: User with ID {} is no longer at version {}", userId, expectedVersion);
+            return new UserVersionMismatchException("User was modified by another request");
+        }
+        logger.error("User update failed: User not found with ID {}", userId);
+        return new UserNotFoundException("User not found");
+    }
+
+    /**
+     * Runs {@code action} once the current transaction commits, or right away outside of one, for in-memory state that
+     * a rollback could not undo.
+     */
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static boolean hasNonNullFields(User user) {
+        return user.getEmail() != null || user.getFirstName() != null || user.getLastName() != null
+                || user.getBirthday() != null || user.getAddress() != null || user.getPhoneNumber() != null;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<User> findUsersWithUpcomingBirthdays(LocalDate from, int days) {
+        LocalDate to = from.plusDays(days);
+        int fromKey = User.monthDayKey(from);
+        int toKey = User.monthDayKey(to);
+        if (!to.isLeapYear() && toKey == FEBRUARY_28) {
+            // February 29th birthdays are celebrated on the 28th in other years
+            toKey = FEBRUARY_29;
+        }
+        List<User> users;
+        if (days >= DAYS_IN_YEAR) {
+            users = new ArrayList<>(userRepository.findUsersByBirthMonthDayBetween(FIRST_MONTH_DAY, LAST_MONTH_DAY));
+        } else if (fromKey <= toKey) {
+            users = new ArrayList<>(userRepository.findUsersByBirthMonthDayBetween(fromKey, toKey));
+        } else {
+            // Two range scans across New Year; a single OR condition is not answered from the index by every database
+            users = new ArrayList<>(userRepository.findUsersByBirthMonthDayBetween(fromKey, LAST_MONTH_DAY));
+            users.addAll(userRepository.findUsersByBirthMonthDayBetween(FIRST_MONTH_DAY, toKey));
+        }
+        users.sort(Comparator.comparing((User user) -> nextBirthday(user.getBirthday(), from)).thenComparing(User::getId));
+        searchResults.record(users.size());
+        logger.info("Users with birthdays in the {} days from {}: {} users", days, from, users.size());
+        return users;
+    }
+
+    /**
+     * Emails of the batch that already belong to stored users, looked up in chunks so a duplicate can be reported
+     * for its item instead of failing the whole batch on the unique index.
+     */
+    private Set<String> findExistingEmails(List<User> users) {
+        List<String> emails = new ArrayList<>(users.size());
+        for (User user : users) {
+            if (user.getEmail() != null) {
+                emails.add(user.getEmail());
+            }
+        }
+        Set<String> existing = new HashSet<>();
+        for (int start = 0; start < emails.size(); start += HYDRATION_CHUNK_SIZE) {
+            existing.addAll(userRepository.findExistingEmails(emails.subList(start, Math.min(emails.size(), start + HYDRATION_CHUNK_SIZE))));
+        }
+        return existing;
+    }
+
+    private List<BirthdayCount> countByBirthdayPeriod(LocalDate from, LocalDate to, boolean byMonth) {
+        List<BirthdayCount> counts = new ArrayList<>();
+        if (birthdayIndex.isReady()) {
+            // Days come in date order, so all days of a period are adjacent
+            Map<String, Long> periods = new LinkedHashMap<>();
+            birthdayIndex.countByDay(from, to, (day, count) ->
+                    periods.merge(periodLabel(day.getYear(), byMonth ? day.getMonthValue() : null), (long) count, Long::sum));
+            periods.forEach((period, count) -> counts.add(new BirthdayCount(period, count)));
+            return counts;
+        }
+        List<BirthdayPeriodCount> rows = byMonth
+                ? userRepository.countByBirthdayMonth(from, to)
+                : userRepository.countByBirthdayYear(from, to);
+        for (BirthdayPeriodCount row : rows) {
+            counts.add(new BirthdayCount(periodLabel(row.year(), row.month()), row.count()));
+        }
+        return counts;
+    }
+
+    /**
+     * Counts per age range: everyone under the legal age, then ranges of {@link #AGE_BUCKET_YEARS} years starting at
+     * the legal age. Each range is a birthday range, so it is one index count or one indexed {@code COUNT} query.
+     */
+    private List<BirthdayCount> countByAge(LocalDate from, LocalDate to, LocalDate today) {
+        List<BirthdayCount> counts = new ArrayList<>();
+        int minAge = 0;
+        int maxAge = ageValidator.getLegalAge() - 1;
+        // Latest birthday of someone who is at least minAge today; ranges only get older from here
+        LocalDate latest = today;
+        while (!latest.isBefore(from)) {
+            LocalDate earliest = today.minusYears(maxAge + 1L).plusDays(1);
+            LocalDate start = earliest.isAfter(from) ? earliest : from;
+            LocalDate end = latest.isBefore(to) ? latest : to;
+            if (!start.isAfter(end)) {
+                long count = birthdayIndex.isReady()
+                        ? birthdayIndex.count(start, end)
+                        : userRepository.countByBirthdayBetween(start, end);
+                if (count > 0) {
+                    counts.add(new BirthdayCount(minAge + "-" + maxAge, count));
+                }
+            }
+            minAge = maxAge + 1;
+            maxAge = minAge + AGE_BUCKET_YEARS - 1;
+            latest = today.minusYears(minAge);
+        }
+        return counts;
+    }
+
+    private static String periodLabel(int year, Integer month) {
+        return month == null ? Year.of(year).toString() : YearMonth.of(year, month).toString();
+    }
+
+    static LocalDate nextBirthday(LocalDate birthday, LocalDate from) {
+        MonthDay monthDay = MonthDay.from(birthday);
+        LocalDate next = monthDay.atYear(from.getYear());
+        return next.isBefore(from) ? monthDay.atYear(from.getYear() + 1) : next;
+    }
+
+    private void applyNonNullFields(User source, User target) {
+        if (source.getEmail() != null) {
+            target.setEmail(source.getEmail());
+        }
+        if (source.getFirstName() != null) {
+            target.setFirstName(source.getFirstName());
+        }
+        if (source.getLastName() != null) {
+            target.setLastName(source.getLastName());
+        }
+        if (source.getBirthday() != null) {
+            target.setBirthday(source.getBirthday());
+        }
+        if (source.getAddress() != null) {
+            target.setAddress(source.getAddress());
+        }
+        if (source.getPhoneNumber() != null) {
+            target.setPhoneNumber(source.getPhoneNumber());
+        }
+    }
+
+    private List<User> findIndexedUsersByBirthdayRange(LocalDate from, LocalDate to) {
+        long[] ids = birthdayIndex.findIds(from, to);
+        List<User> users = new ArrayList<>(ids.length);
+        for (int start = 0; start < ids.length; start += HYDRATION_CHUNK_SIZE) {
+            int end = Math.min(ids.length, start + HYDRATION_CHUNK_SIZE);
+            List<Long> chunk = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                chunk.add(ids[i]);
+            }
+            users.addAll(userRepository.findAllById(chunk));
+        }
+        users.sort(BY_BIRTHDAY_AND_ID);
+        return users;
+    }
+
+    private void validateRange(LocalDate from, LocalDate to) {
         if (from.isAfter(to)) {
             logger.error("Search failed: Wrong date range provided - from: {}, to: {}", from, to);
             throw new WrongDateRangeException("Wrong range of birth date");
         }
-        List<User> users = userRepository.findUsersByBirthDateRange(from, to);
-        logger.info("Users found by birthday range: from {} to {}: {}", from, to, users);
-        return users;
     }
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.clearsolution.restfulapitask.shard;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+/**
+ * The usual sequence ids, except inside {@link ShardRouter#onShard}, where ids come from the shard's
+ * {@link ShardIdGenerator} so they name the shard the row is stored on.
+ */
+public class ShardAwareIdGenerator extends SequenceStyleGenerator {
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        Long id = ShardRouter.nextId();
+        return id != null ? id : super.generate(session, object);
+    }
+}
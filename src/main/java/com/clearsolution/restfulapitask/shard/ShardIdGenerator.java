@@ -0,0 +1,68 @@
+package com.clearsolution.restfulapitask.shard;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Snowflake-style ids that carry the shard they were created on, so a by-id request can be routed without a lookup.
+ * From the top: 41 bits of milliseconds since {@link #EPOCH_MILLIS}, {@link #SHARD_BITS} bits of shard,
+ * {@link #NODE_BITS} bits telling application instances apart and {@link #SEQUENCE_BITS} bits counting ids within
+ * the same millisecond. Ids of one instance always increase.
+ * <p>
+ * The clock is never waited for: a millisecond that ran out of sequence numbers, or a clock that went backwards,
+ * continues on the next millisecond after the last one used.
+ * <p>
+ * Ids created since late January 2024 are above 2<sup>53</sup>, the largest integer a double holds exactly. They
+ * stay JSON numbers like the sequence ids of an unsharded deployment, so the API keeps one type for ids; a JavaScript
+ * client has to parse them with a BigInt-aware JSON parser rather than {@code JSON.parse}, which would round them to
+ * another user's id.
+ */
+public class ShardIdGenerator {
+
+    public static final int SHARD_BITS = 6;
+    public static final int NODE_BITS = 4;
+    public static final int SEQUENCE_BITS = 12;
+    public static final int MAX_SHARDS = 1 << SHARD_BITS;
+    public static final int MAX_NODES = 1 << NODE_BITS;
+    // 2024-01-01T00:00:00Z; 41 bits of milliseconds last until 2093
+    public static final long EPOCH_MILLIS = 1_704_067_200_000L;
+
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+    private static final int SHARD_SHIFT = NODE_BITS + SEQUENCE_BITS;
+    private static final int TIME_SHIFT = SHARD_BITS + SHARD_SHIFT;
+
+    private final int node;
+    private final LongSupplier clock;
+    private long lastMillis = -1;
+    private long sequence;
+
+    public ShardIdGenerator(int node) {
+        this(node, System::currentTimeMillis);
+    }
+
+    ShardIdGenerator(int node, LongSupplier clock) {
+        if (node < 0 || node >= MAX_NODES) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + (MAX_NODES - 1));
+        }
+        this.node = node;
+        this.clock = clock;
+    }
+
+    public synchronized long nextId(int shard) {
+        if (shard < 0 || shard >= MAX_SHARDS) {
+            throw new IllegalArgumentException("Shard must be between 0 and " + (MAX_SHARDS - 1));
+        }
+        long millis = clock.getAsLong() - EPOCH_MILLIS;
+        if (millis > lastMillis) {
+            lastMillis = millis;
+            sequence = 0;
+        } else if (++sequence > MAX_SEQUENCE) {
+            lastMillis++;
+            sequence = 0;
+        }
+        return lastMillis << TIME_SHIFT | (long) shard << SHARD_SHIFT | (long) node << SEQUENCE_BITS | sequence;
+    }
+
+    public static int shardOf(long id) {
+        return (int) (id >>> SHARD_SHIFT) & (MAX_SHARDS - 1);
+    }
+}
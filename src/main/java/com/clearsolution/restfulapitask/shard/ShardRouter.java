@@ -0,0 +1,156 @@
+package com.clearsolution.restfulapitask.shard;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Hash sharding of the users over several databases. A new user goes to the shard its email hashes to, so two
+ * creates with the same email meet on one unique index, and gets an id from {@link ShardIdGenerator} naming that
+ * shard; everything by id goes straight to the shard in the id.
+ * <p>
+ * Code runs against a shard inside {@link #onShard}, which binds the shard to the thread for
+ * {@link ShardRoutingDataSource} and the id generators. The binding has to be in place before a transaction starts,
+ * because the transaction takes its connection when it begins. {@link #onEachShard} runs a call on all shards in
+ * parallel.
+ * <p>
+ * Owns the pools it routes to and closes them with the application context.
+ */
+public class ShardRouter implements AutoCloseable {
+
+    private static final ThreadLocal<Binding> CURRENT = new ThreadLocal<>();
+
+    private final List<DataSource> shards;
+    private final ShardIdGenerator idGenerator;
+    // Platform threads: the JDBC drivers block inside synchronized code, which pins virtual threads to their carrier
+    private final ExecutorService scatterExecutor = Executors.newCachedThreadPool(Thread.ofPlatform().name("shard-scatter-", 0)
+            .daemon().factory());
+
+    public ShardRouter(List<DataSource> shards, ShardIdGenerator idGenerator) {
+        if (shards.isEmpty() || shards.size() > ShardIdGenerator.MAX_SHARDS) {
+            throw new IllegalArgumentException("Between 1 and " + ShardIdGenerator.MAX_SHARDS + " shards are supported");
+        }
+        this.shards = List.copyOf(shards);
+        this.idGenerator = idGenerator;
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    public DataSource shard(int shard) {
+        return shards.get(shard);
+    }
+
+    /**
+     * The shard holding the user with this id, or -1 for an id no shard can hold.
+     */
+    public int shardOf(long id) {
+        int shard = ShardIdGenerator.shardOf(id);
+        return shard < shards.size() ? shard : -1;
+    }
+
+    /**
+     * The shard a new user with this email is stored on.
+     */
+    public int shardFor(String email) {
+        return email == null ? 0 : Math.floorMod(email.hashCode(), shards.size());
+    }
+
+    public <T> T onShard(int shard, Supplier<T> call) {
+        Binding previous = CURRENT.get();
+        CURRENT.set(new Binding(shard, this));
+        try {
+            return call.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Runs the call on every shard at the same time, shard 0 on the calling thread, and returns the results by shard.
+     * The first failure is rethrown once all shards are done.
+     */
+    public <T> List<T> onEachShard(Supplier<T> call) {
+        if (shards.size() == 1) {
+            return Collections.singletonList(onShard(0, call));
+        }
+        List<Future<T>> futures = new ArrayList<>(shards.size() - 1);
+        for (int shard = 1; shard < shards.size(); shard++) {
+            int target = shard;
+            futures.add(scatterExecutor.submit(() -> onShard(target, call)));
+        }
+        List<T> results = new ArrayList<>(shards.size());
+        RuntimeException failure = null;
+        try {
+            results.add(onShard(0, call));
+        } catch (RuntimeException e) {
+            failure = e;
+            results.add(null);
+        }
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(running -> running.cancel(true));
+                throw new IllegalStateException("Interrupted while waiting for the shards", e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    /**
+     * The shard bound to this thread, or {@code null} outside {@link #onShard}.
+     */
+    public static Integer currentShard() {
+        Binding binding = CURRENT.get();
+        return binding == null ? null : binding.shard();
+    }
+
+    /**
+     * A new id on the shard bound to this thread, or {@code null} outside {@link #onShard}.
+     */
+    public static Long nextId() {
+        Binding binding = CURRENT.get();
+        return binding == null ? null : binding.router().idGenerator.nextId(binding.shard());
+    }
+
+    /**
+     * Connections taken with no shard bound, e.g. while Hibernate and Flyway start up, come from shard 0.
+     */
+    DataSource current() {
+        Binding binding = CURRENT.get();
+        return shards.get(binding == null || binding.router() != this ? 0 : binding.shard());
+    }
+
+    @Override
+    public void close() throws Exception {
+        scatterExecutor.shutdownNow();
+        for (DataSource shard : shards) {
+            if (shard instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private record Binding(int shard, ShardRouter router) {
+    }
+}
@@ -0,0 +1,28 @@
+package com.clearsolution.restfulapitask.shard;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Takes each connection from the shard bound to the current thread by {@link ShardRouter#onShard}.
+ */
+public class ShardRoutingDataSource extends AbstractDataSource {
+
+    private final ShardRouter router;
+
+    public ShardRoutingDataSource(ShardRouter router) {
+        this.router = router;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return router.current().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return router.current().getConnection(username, password);
+    }
+}
@@ -14,6 +14,10 @@ public class AgeValidator {
         this.legalAge = legalAge;
     }
 
+    public int getLegalAge() {
+        return legalAge;
+    }
+
     public boolean isValidAge(LocalDate dateOfBirth) {
         LocalDate legalAgeDate = LocalDate.now().minusYears(legalAge);
         return dateOfBirth.isBefore(legalAgeDate);
@@ -0,0 +1,36 @@
+package com.clearsolution.restfulapitask.validation;
+
+import com.clearsolution.restfulapitask.model.User;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the bean validation constraints of {@link User} together with the {@link AgeValidator} check and collects
+ * every failure message, for callers that report problems per item instead of rejecting the whole request.
+ */
+@Component
+public class UserValidator {
+
+    private final Validator validator;
+    private final AgeValidator ageValidator;
+
+    public UserValidator(Validator validator, AgeValidator ageValidator) {
+        this.validator = validator;
+        this.ageValidator = ageValidator;
+    }
+
+    public List<String> validate(User user) {
+        List<String> errors = new ArrayList<>();
+        for (ConstraintViolation<User> violation : validator.validate(user)) {
+            errors.add(violation.getMessage());
+        }
+        if (user.getBirthday() != null && !ageValidator.isValidAge(user.getBirthday())) {
+            errors.add("User age is less than the acceptable limit");
+        }
+        return errors;
+    }
+}
@@ -0,0 +1,12 @@
+-- The users table as Hibernate created it with ddl-auto before migrations were introduced: birthday is NOT NULL from
+-- its @NotNull, while the @NotBlank columns stay nullable as Hibernate does not turn @NotBlank into a constraint.
+-- Existing databases are baselined at this version and skip it.
+CREATE TABLE users (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    address      VARCHAR(255),
+    birthday     DATE NOT NULL,
+    email        VARCHAR(255),
+    first_name   VARCHAR(255),
+    last_name    VARCHAR(255),
+    phone_number VARCHAR(255)
+);
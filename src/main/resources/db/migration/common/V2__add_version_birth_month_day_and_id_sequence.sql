@@ -0,0 +1,15 @@
+-- Databases that ran ddl-auto=update against a newer entity may already have some of these.
+
+-- Optimistic locking version, exposed as the ETag
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version BIGINT;
+UPDATE users SET version = 0 WHERE version IS NULL;
+ALTER TABLE users ALTER COLUMN version SET DEFAULT 0;
+ALTER TABLE users ALTER COLUMN version SET NOT NULL;
+
+-- month * 100 + day of the birthday for anniversary queries
+ALTER TABLE users ADD COLUMN IF NOT EXISTS birth_month_day INTEGER;
+UPDATE users SET birth_month_day = EXTRACT(MONTH FROM birthday) * 100 + EXTRACT(DAY FROM birthday)
+WHERE birthday IS NOT NULL AND birth_month_day IS NULL;
+
+-- Ids are allocated in blocks of 50 by Hibernate's pooled optimizer, see User.id
+CREATE SEQUENCE IF NOT EXISTS users_seq START WITH 1 INCREMENT BY 50;
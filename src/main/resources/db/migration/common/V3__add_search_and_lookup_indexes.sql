@@ -0,0 +1,8 @@
+-- Birthday range search and its keyset pagination, which order by (birthday, id)
+CREATE INDEX IF NOT EXISTS idx_users_birthday_id ON users (birthday, id);
+
+-- Upcoming birthdays
+CREATE INDEX IF NOT EXISTS idx_users_birth_month_day ON users (birth_month_day);
+
+-- Lookup by email; fails on existing duplicates, which have to be resolved by hand first
+CREATE UNIQUE INDEX IF NOT EXISTS uk_users_email ON users (email);
@@ -0,0 +1,3 @@
+-- Rows inserted through the old identity column must not collide with ids handed out from users_seq.
+-- The sequence only ever moves forward, in case ddl-auto had already created and used it.
+SELECT setval('users_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM users), (SELECT last_value FROM users_seq), 1));
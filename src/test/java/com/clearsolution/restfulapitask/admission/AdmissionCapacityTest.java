@@ -0,0 +1,95 @@
+package com.clearsolution.restfulapitask.admission;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The configured admission limits against the configured connection pool: searches that each hold a connection for
+ * as long as they run must not be able to take every connection.
+ */
+@SpringBootTest
+class AdmissionCapacityTest {
+
+    @Autowired
+    private AdmissionFilter admissionFilter;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${app.admission.search.max-concurrent}")
+    private int searchLimit;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size}")
+    private int poolSize;
+
+    private final ExecutorService clients = Executors.newCachedThreadPool();
+    private final CountDownLatch finishSearches = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        finishSearches.countDown();
+        clients.shutdown();
+    }
+
+    @Test
+    void testSearchLimitLeavesConnectionsForWrites() {
+        assertTrue(searchLimit < poolSize);
+    }
+
+    @Test
+    void testWriteSucceedsWhileSearchesAreSaturated() throws Exception {
+        CountDownLatch searching = new CountDownLatch(searchLimit);
+        List<Future<MockHttpServletResponse>> searches = new ArrayList<>();
+        for (int i = 0; i < searchLimit; i++) {
+            searches.add(clients.submit(() -> send("GET", "/v1/api/users/search", (request, response) -> {
+                try (Connection connection = dataSource.getConnection()) {
+                    searching.countDown();
+                    finishSearches.await();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            })));
+        }
+        assertTrue(searching.await(10, TimeUnit.SECONDS));
+
+        // One search more is turned away instead of waiting for a connection
+        assertEquals(503, send("GET", "/v1/api/users/search", (request, response) -> fail("Search was let through")).getStatus());
+        Future<MockHttpServletResponse> write = clients.submit(() -> send("POST", "/v1/api/users/create", (request, response) -> {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.createStatement().execute("SELECT 1");
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+        assertEquals(200, write.get(5, TimeUnit.SECONDS).getStatus());
+
+        finishSearches.countDown();
+        for (Future<MockHttpServletResponse> search : searches) {
+            assertEquals(200, search.get(5, TimeUnit.SECONDS).getStatus());
+        }
+    }
+
+    private MockHttpServletResponse send(String method, String uri, FilterChain chain) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        admissionFilter.doFilter(new MockHttpServletRequest(method, uri), response, chain);
+        return response;
+    }
+}
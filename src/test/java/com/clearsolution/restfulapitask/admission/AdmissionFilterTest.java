@@ -0,0 +1,104 @@
+package com.clearsolution.restfulapitask.admission;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionFilterTest {
+
+    @Test
+    void testRejectsRequestsBeyondGroupLimit() throws Exception {
+        AdmissionFilter filter = filter(1, 0);
+        AtomicReference<MockHttpServletResponse> nested = new AtomicReference<>();
+
+        // The second search arrives while the first one is still in the chain
+        MockHttpServletResponse first = send(filter, "GET", "/v1/api/users/search",
+                (request, response) -> nested.set(send(filter, "GET", "/v1/api/users/search/page", new MockFilterChain())));
+
+        assertEquals(200, first.getStatus());
+        assertEquals(503, nested.get().getStatus());
+        assertEquals("1", nested.get().getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals(200, send(filter, "GET", "/v1/api/users/search", new MockFilterChain()).getStatus());
+    }
+
+    @Test
+    void testSearchesDoNotTakeWriteSlots() throws Exception {
+        AdmissionFilter filter = filter(1, 0);
+        AtomicReference<MockHttpServletResponse> write = new AtomicReference<>();
+        AtomicReference<MockHttpServletResponse> read = new AtomicReference<>();
+
+        send(filter, "GET", "/v1/api/users/export", (request, response) -> {
+            write.set(send(filter, "POST", "/v1/api/users/create", new MockFilterChain()));
+            read.set(send(filter, "GET", "/v1/api/users/1", new MockFilterChain()));
+        });
+
+        assertEquals(200, write.get().getStatus());
+        assertEquals(200, read.get().getStatus());
+    }
+
+    @Test
+    void testAsyncRequestHoldsItsSlotUntilItCompletes() throws Exception {
+        AdmissionFilter filter = filter(1, 0);
+        AtomicReference<AsyncContext> stream = new AtomicReference<>();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/api/users/events/stream");
+        request.setAsyncSupported(true);
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> stream.set(req.startAsync()));
+
+        assertEquals(503, send(filter, "GET", "/v1/api/users/events", new MockFilterChain()).getStatus());
+        assertEquals(200, send(filter, "GET", "/v1/api/users/search", new MockFilterChain()).getStatus());
+        stream.get().complete();
+        assertEquals(200, send(filter, "GET", "/v1/api/users/events", new MockFilterChain()).getStatus());
+    }
+
+    @Test
+    void testRateLimitPerClient() throws Exception {
+        AdmissionFilter filter = filter(10, 0.001);
+
+        assertEquals(200, send(filter, "GET", "/v1/api/users/1", new MockFilterChain()).getStatus());
+        MockHttpServletResponse limited = send(filter, "GET", "/v1/api/users/1", new MockFilterChain());
+
+        assertEquals(429, limited.getStatus());
+        assertEquals("1000", limited.getHeader(HttpHeaders.RETRY_AFTER));
+        MockHttpServletRequest otherClient = new MockHttpServletRequest("GET", "/v1/api/users/1");
+        otherClient.setRemoteAddr("10.0.0.2");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(otherClient, response, new MockFilterChain());
+        assertEquals(200, response.getStatus());
+    }
+
+    @Test
+    void testOtherPathsAreNotLimited() throws Exception {
+        AdmissionFilter filter = filter(1, 0.001);
+
+        send(filter, "GET", "/actuator/health", new MockFilterChain());
+
+        assertEquals(200, send(filter, "GET", "/actuator/health", new MockFilterChain()).getStatus());
+    }
+
+    private static AdmissionFilter filter(int limit, double requestsPerSecond) {
+        return new AdmissionFilter(limit, limit, limit, limit, false, 1, Duration.ofMillis(500), requestsPerSecond, 1, Duration.ofMinutes(1));
+    }
+
+    private static MockHttpServletResponse send(AdmissionFilter filter, String method, String uri, FilterChain chain) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request, response, chain);
+        } catch (IOException | ServletException e) {
+            throw new AssertionError(e);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,71 @@
+package com.clearsolution.restfulapitask.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimiterTest {
+
+    private static final long FAST = Duration.ofMillis(10).toNanos();
+    private static final long SLOW = Duration.ofSeconds(1).toNanos();
+
+    @Test
+    void testFixedLimit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        limiter.release(SLOW, true);
+        assertEquals(2, limiter.limit());
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    void testAdaptiveLimitBacksOffAndRecovers() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 20, true, Duration.ofMillis(100));
+
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire();
+            limiter.release(SLOW, false);
+        }
+        assertEquals(10, limiter.limit());
+
+        limiter.tryAcquire();
+        limiter.release(FAST, true);
+        assertEquals(9, limiter.limit());
+
+        // Fast requests only grow the limit while at least half of it is in use
+        limiter.tryAcquire();
+        limiter.release(FAST, false);
+        assertEquals(9, limiter.limit());
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire();
+        }
+        limiter.release(FAST, false);
+        assertEquals(10, limiter.limit());
+        assertEquals(4, limiter.inFlight());
+    }
+
+    @Test
+    void testAdaptiveLimitStaysWithinBounds() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 3, true, Duration.ofMillis(100));
+
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire();
+            limiter.release(SLOW, false);
+        }
+        assertEquals(2, limiter.limit());
+
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire();
+            limiter.tryAcquire();
+            limiter.release(FAST, false);
+            limiter.release(FAST, false);
+        }
+        assertEquals(3, limiter.limit());
+    }
+}
@@ -0,0 +1,24 @@
+package com.clearsolution.restfulapitask.benchmark;
+
+import com.clearsolution.restfulapitask.validation.AgeValidator;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AgeValidatorBenchmark {
+
+    private final AgeValidator ageValidator = new AgeValidator(18);
+    private final LocalDate birthday = LocalDate.of(1990, 5, 11);
+
+    @Benchmark
+    public boolean isValidAge() {
+        return ageValidator.isValidAge(birthday);
+    }
+}
@@ -0,0 +1,106 @@
+package com.clearsolution.restfulapitask.benchmark;
+
+import com.clearsolution.restfulapitask.RestfulApiTaskApplication;
+import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.service.UserService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Test data and application bootstrapping shared by the benchmarks.
+ */
+final class BenchmarkUsers {
+
+    static final LocalDate OLDEST_BIRTHDAY = LocalDate.of(1950, 1, 1);
+    static final int BIRTHDAY_SPAN_DAYS = 20_000;
+
+    private static final int SEED_CHUNK_SIZE = 10_000;
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private BenchmarkUsers() {
+    }
+
+    static User generate(Random random) {
+        long n = SEQUENCE.incrementAndGet();
+        User user = new User();
+        user.setEmail("user" + n + "@example.com");
+        user.setFirstName("First" + n);
+        user.setLastName("Last" + n);
+        user.setBirthday(OLDEST_BIRTHDAY.plusDays(random.nextInt(BIRTHDAY_SPAN_DAYS)));
+        user.setAddress(n + " Benchmark Street");
+        user.setPhoneNumber("+38050" + (1_000_000 + n % 9_000_000));
+        return user;
+    }
+
+    static List<User> generate(int count, Random random) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(generate(random));
+        }
+        return users;
+    }
+
+    /**
+     * Boots the application without a web server against its own in-memory H2 database.
+     */
+    static ConfigurableApplicationContext start(String database, String... properties) {
+        return start(WebApplicationType.NONE, database, properties);
+    }
+
+    /**
+     * Boots the application with its web server on a random free port against its own in-memory H2 database.
+     */
+    static ConfigurableApplicationContext startServer(String database, String... properties) {
+        return start(WebApplicationType.SERVLET, database, properties);
+    }
+
+    /**
+     * Boots the {@code reactive} profile on Netty with a random free port, connected over R2DBC to the in-memory H2
+     * database of a context already started with {@link #start} in the same JVM, which seeds the users.
+     */
+    static ConfigurableApplicationContext startReactiveServer(String database, String... properties) {
+        return new SpringApplicationBuilder(RestfulApiTaskApplication.class)
+                .profiles("reactive")
+                .run(arguments(properties, "server.port=0",
+                        "spring.r2dbc.url=r2dbc:h2:mem:///" + database + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+                        // Flyway migrates over JDBC and must not drop the in-memory database when it disconnects
+                        "spring.flyway.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+                        "logging.level.root=WARN"));
+    }
+
+    private static ConfigurableApplicationContext start(WebApplicationType webApplicationType, String database, String... properties) {
+        return new SpringApplicationBuilder(RestfulApiTaskApplication.class)
+                .web(webApplicationType)
+                .run(arguments(properties, "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:" + database + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+                        "logging.level.root=WARN"));
+    }
+
+    /**
+     * Command line arguments rank above application.properties, unlike the builder's default properties, so the
+     * benchmark settings actually apply. Caller properties come last and win over the defaults given here.
+     */
+    private static String[] arguments(String[] properties, String... defaults) {
+        List<String> arguments = new ArrayList<>(defaults.length + properties.length);
+        for (String property : defaults) {
+            arguments.add("--" + property);
+        }
+        for (String property : properties) {
+            arguments.add("--" + property);
+        }
+        return arguments.toArray(String[]::new);
+    }
+
+    static void seed(UserService userService, int count, Random random) {
+        for (int created = 0; created < count; created += SEED_CHUNK_SIZE) {
+            userService.createUsers(generate(Math.min(SEED_CHUNK_SIZE, count - created), random));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.clearsolution.restfulapitask.benchmark;
+
+import com.clearsolution.restfulapitask.index.BirthdayIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Range lookups on the bare {@link BirthdayIndex}; the heap it uses per user is printed once it is built.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BirthdayIndexBenchmark {
+
+    @Param({"1000000", "10000000"})
+    private int users;
+
+    private BirthdayIndex birthdayIndex;
+    private final Random random = new Random(42);
+
+    @Setup
+    public void setUp() {
+        birthdayIndex = new BirthdayIndex(true);
+        for (long id = 1; id <= users; id++) {
+            birthdayIndex.put(id, randomBirthday());
+        }
+        System.out.printf("%nBirthday index: %d users, %.1f bytes per user%n",
+                birthdayIndex.size(), (double) birthdayIndex.estimatedBytes() / birthdayIndex.size());
+    }
+
+    @Benchmark
+    public long[] findOneMonth() {
+        LocalDate from = randomBirthday();
+        return birthdayIndex.findIds(from, from.plusDays(30));
+    }
+
+    @Benchmark
+    public long[] findOneYear() {
+        LocalDate from = randomBirthday();
+        return birthdayIndex.findIds(from, from.plusYears(1));
+    }
+
+    private LocalDate randomBirthday() {
+        return BenchmarkUsers.OLDEST_BIRTHDAY.plusDays(random.nextInt(BenchmarkUsers.BIRTHDAY_SPAN_DAYS));
+    }
+}
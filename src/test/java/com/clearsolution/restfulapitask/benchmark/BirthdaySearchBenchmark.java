@@ -0,0 +1,65 @@
+package com.clearsolution.restfulapitask.benchmark;
+
+import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.model.UserField;
+import com.clearsolution.restfulapitask.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Birthday range search through the JPQL {@code BETWEEN} query versus the in-memory birthday index, and the
+ * {@code id,email,birthday} projection that skips entity loading.
+ * Larger tables, e.g. {@code -p users=10000000}, need a bigger heap for the embedded database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BirthdaySearchBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int users;
+
+    @Param({"false", "true"})
+    private boolean birthdayIndex;
+
+    private static final Set<UserField> PROJECTION = EnumSet.of(UserField.ID, UserField.EMAIL, UserField.BIRTHDAY);
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private final Random random = new Random(42);
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkUsers.start("search_benchmark", "app.search.birthday-index.enabled=" + birthdayIndex);
+        userService = context.getBean(UserService.class);
+        BenchmarkUsers.seed(userService, users, random);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<User> searchOneMonth() {
+        LocalDate from = BenchmarkUsers.OLDEST_BIRTHDAY.plusDays(random.nextInt(BenchmarkUsers.BIRTHDAY_SPAN_DAYS));
+        return userService.findUsersByBirthdayRange(from, from.plusDays(30));
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> searchOneMonthProjection() {
+        LocalDate from = BenchmarkUsers.OLDEST_BIRTHDAY.plusDays(random.nextInt(BenchmarkUsers.BIRTHDAY_SPAN_DAYS));
+        return userService.findUsersByBirthdayRange(from, from.plusDays(30), PROJECTION);
+    }
+}
@@ -0,0 +1,51 @@
+package com.clearsolution.restfulapitask.benchmark;
+
+import com.clearsolution.restfulapitask.data.ImportFormat;
+import com.clearsolution.restfulapitask.service.UserExportService;
+import com.clearsolution.restfulapitask.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full-table exports per second into a discarding stream, so only the database read and the encoding are measured.
+ * Run with {@code -prof gc}: the allocation per export should grow with the rows only, about the same per row at
+ * every table size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExportBenchmark {
+
+    @Param({"10000", "100000"})
+    private int users;
+
+    @Param({"CSV", "NDJSON"})
+    private ImportFormat format;
+
+    private ConfigurableApplicationContext context;
+    private UserExportService userExportService;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkUsers.start("export_benchmark");
+        BenchmarkUsers.seed(context.getBean(UserService.class), users, new Random(42));
+        userExportService = context.getBean(UserExportService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long exportUsers() {
+        return userExportService.exportUsers(OutputStream.nullOutputStream(), format);
+    }
+}
@@ -0,0 +1,66 @@
+package com.clearsolution.restfulapitask.benchmark;
+
+import com.clearsolution.restfulapitask.data.ImportFormat;
+import com.clearsolution.restfulapitask.data.ImportSummary;
+import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.service.UserImportService;
+import com.clearsolution.restfulapitask.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows per second written by the bulk CSV import compared with one {@link UserService#createUser} call per row,
+ * against an in-memory H2 database, so the import goes through JDBC batches rather than {@code COPY}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImportBenchmark {
+
+    private static final int ROWS = 5_000;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private UserImportService userImportService;
+    private final Random random = new Random(42);
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkUsers.start("import_benchmark");
+        userService = context.getBean(UserService.class);
+        userImportService = context.getBean(UserImportService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void createUser() {
+        userService.createUser(BenchmarkUsers.generate(random));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public ImportSummary importCsv() {
+        StringBuilder csv = new StringBuilder("email,firstName,lastName,birthday,address,phoneNumber\n");
+        for (User user : BenchmarkUsers.generate(ROWS, random)) {
+            csv.append(user.getEmail()).append(',')
+                    .append(user.getFirstName()).append(',')
+                    .append(user.getLastName()).append(',')
+                    .append(user.getBirthday()).append(',')
+                    .append(user.getAddress()).append(',')
+                    .append(user.getPhoneNumber()).append('\n');
+        }
+        return userImportService.importUsers(new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)), ImportFormat.CSV);
+    }
+}
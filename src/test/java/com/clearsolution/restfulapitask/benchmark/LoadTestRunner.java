@@ -0,0 +1,294 @@
+package com.clearsolution.restfulapitask.benchmark;
+
+import com.clearsolution.restfulapitask.cache.BirthdaySearchCache;
+import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop HTTP load test. Boots the application on a random port against an in-memory H2 database, seeds it and
+ * sends a weighted mix of requests at a fixed arrival rate. Latency is measured from the moment a request was
+ * scheduled, so a stalled server shows up in the percentiles instead of silently lowering the request rate.
+ * <p>
+ * Run with {@code mvn -Pload-test verify -Dloadtest.args="rate=500 duration=60"}. Options and defaults:
+ * {@code users=10000 rate=200 duration=30 warmup=5 mix=create:10,put:10,patch:10,delete:5,search:65
+ * stack=servlet report=target/load-test-report.json}, with rate in requests per second and durations in seconds.
+ * {@code stack=reactive} serves the same data from the WebFlux and R2DBC variant; the report then compares heap
+ * and thread usage of both stacks as well as latency.
+ * <p>
+ * {@code burst=N} makes the search traffic bursty: every search sends N identical requests at the same moment, as
+ * many clients asking for a popular range would. The report then counts the database queries the searches caused;
+ * compare {@code coalescing=true} (default) with {@code coalescing=false}, and set {@code result-cache-ttl=2s} to add
+ * the short-lived result cache.
+ */
+public final class LoadTestRunner {
+
+    private static final String BASE_PATH = "/v1/api/users";
+
+    private final Map<String, String> options;
+    private final Random random = new Random(42);
+    private final List<Long> liveIds = Collections.synchronizedList(new ArrayList<>());
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private LoadTestRunner(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>(Map.of(
+                "users", "10000",
+                "rate", "200",
+                "duration", "30",
+                "warmup", "5",
+                "mix", "create:10,put:10,patch:10,delete:5,search:65",
+                "stack", "servlet",
+                "burst", "1",
+                "coalescing", "true",
+                "result-cache-ttl", "0s",
+                "report", "target/load-test-report.json"));
+        for (String arg : args) {
+            String[] option = arg.split("=", 2);
+            options.put(option[0], option[1]);
+        }
+        new LoadTestRunner(options).run();
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        boolean reactive = "reactive".equals(options.get("stack"));
+        String[] properties = {
+                "app.search.coalescing.enabled=" + options.get("coalescing"),
+                "app.search.result-cache.ttl=" + options.get("result-cache-ttl")};
+        // The servlet context seeds the database and owns its schema, so it stays up in reactive runs too
+        try (ConfigurableApplicationContext context = reactive
+                ? BenchmarkUsers.start("load_test", properties)
+                : BenchmarkUsers.startServer("load_test", properties)) {
+            int users = Integer.parseInt(options.get("users"));
+            BenchmarkUsers.seed(context.getBean(UserService.class), users, random);
+            for (long id = 1; id <= users; id++) {
+                liveIds.add(id);
+            }
+            if (reactive) {
+                try (ConfigurableApplicationContext server = BenchmarkUsers.startReactiveServer("load_test")) {
+                    run(server);
+                }
+            } else {
+                run(context);
+            }
+        }
+    }
+
+    private void run(ConfigurableApplicationContext server) throws Exception {
+        int port = ((WebServerApplicationContext) server).getWebServer().getPort();
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newFixedThreadPool(64))
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        URI base = URI.create("http://localhost:" + port + BASE_PATH);
+        int rate = Integer.parseInt(options.get("rate"));
+
+        System.out.printf("Warming up for %ss%n", options.get("warmup"));
+        drive(client, base, rate, Integer.parseInt(options.get("warmup")), new LinkedHashMap<>());
+
+        // Only the servlet stack goes through the search coalescing
+        BirthdaySearchCache searchCache = "reactive".equals(options.get("stack")) ? null : server.getBean(BirthdaySearchCache.class);
+        long queriesBefore = searchCache == null ? 0 : searchCache.queryCount();
+        Map<String, EndpointStats> stats = new LinkedHashMap<>();
+        System.out.printf("Running %d req/s for %ss with mix %s%n", rate, options.get("duration"), options.get("mix"));
+        long elapsed = drive(client, base, rate, Integer.parseInt(options.get("duration")), stats);
+        Long searchQueries = searchCache == null ? null : searchCache.queryCount() - queriesBefore;
+        report(stats, elapsed, searchQueries);
+    }
+
+    /**
+     * Sends requests at a fixed rate for the given time and waits for all of them to finish. A search sends
+     * {@code burst} identical requests at its scheduled time.
+     *
+     * @return elapsed nanoseconds until the last response arrived
+     */
+    private long drive(HttpClient client, URI base, int rate, int seconds, Map<String, EndpointStats> stats) throws InterruptedException {
+        List<String> mix = parseMix(options.get("mix"));
+        int burst = Integer.parseInt(options.get("burst"));
+        for (String operation : new LinkedHashSet<>(mix)) {
+            stats.putIfAbsent(operation, new EndpointStats());
+        }
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long total = (long) rate * seconds;
+        List<CompletableFuture<?>> inFlight = new ArrayList<>();
+        long start = System.nanoTime();
+        for (long i = 0; i < total; i++) {
+            long scheduled = start + i * interval;
+            LockSupport.parkNanos(scheduled - System.nanoTime());
+            String operation = mix.get(random.nextInt(mix.size()));
+            HttpRequest request = request(base, operation);
+            EndpointStats endpoint = stats.get(operation);
+            int copies = "search".equals(operation) ? burst : 1;
+            for (int copy = 0; copy < copies; copy++) {
+                inFlight.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                        .whenComplete((response, error) ->
+                                endpoint.record(System.nanoTime() - scheduled, error == null && response.statusCode() < 400))
+                        // Already counted as an error; a timed out request must not abort the whole run
+                        .exceptionally(error -> null));
+            }
+        }
+        CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new)).join();
+        return System.nanoTime() - start;
+    }
+
+    private HttpRequest request(URI base, String operation) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder().timeout(Duration.ofSeconds(30));
+        switch (operation) {
+            case "create" -> builder.uri(URI.create(base + "/create"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(json(BenchmarkUsers.generate(random))));
+            case "put" -> builder.uri(URI.create(base + "/" + randomLiveId()))
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString(json(BenchmarkUsers.generate(random))));
+            case "patch" -> builder.uri(URI.create(base + "/" + randomLiveId()))
+                    .header("Content-Type", "application/json")
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"phoneNumber\": \"+380501234567\"}"));
+            case "delete" -> builder.uri(URI.create(base + "/" + takeLiveId())).DELETE();
+            case "search" -> {
+                LocalDate from = BenchmarkUsers.OLDEST_BIRTHDAY.plusDays(random.nextInt(BenchmarkUsers.BIRTHDAY_SPAN_DAYS));
+                builder.uri(URI.create(base + "/search?from=" + from + "&to=" + from.plusDays(30))).GET();
+            }
+            default -> throw new IllegalArgumentException("Unknown operation " + operation);
+        }
+        return builder.build();
+    }
+
+    private long randomLiveId() {
+        synchronized (liveIds) {
+            return liveIds.get(random.nextInt(liveIds.size()));
+        }
+    }
+
+    // Created users are not added to the pool; the seeded ids keep updates and deletes supplied
+    private long takeLiveId() {
+        synchronized (liveIds) {
+            int index = random.nextInt(liveIds.size());
+            long id = liveIds.get(index);
+            // Swap-remove so a deleted id is never picked by later updates
+            liveIds.set(index, liveIds.get(liveIds.size() - 1));
+            liveIds.remove(liveIds.size() - 1);
+            return id;
+        }
+    }
+
+    private String json(User user) {
+        try {
+            return objectMapper.writeValueAsString(user);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void report(Map<String, EndpointStats> stats, long elapsedNanos, Long searchQueries) throws IOException {
+        double seconds = elapsedNanos / 1e9;
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("stack", options.get("stack"));
+        report.put("rate", Integer.parseInt(options.get("rate")));
+        report.put("burst", Integer.parseInt(options.get("burst")));
+        report.put("coalescing", Boolean.parseBoolean(options.get("coalescing")));
+        report.put("durationSeconds", seconds);
+        // Taken after the run while the server is still up; both stacks share this JVM with the load generator
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        report.put("heapUsedMb", memory.getHeapMemoryUsage().getUsed() / (1024 * 1024));
+        report.put("liveThreads", ManagementFactory.getThreadMXBean().getThreadCount());
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        System.out.printf("%n%-8s %8s %10s %8s %9s %9s %9s %9s %9s%n",
+                "endpoint", "count", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map.Entry<String, EndpointStats> entry : stats.entrySet()) {
+            Map<String, Object> summary = entry.getValue().summary(seconds);
+            endpoints.put(entry.getKey(), summary);
+            System.out.printf("%-8s %8d %10.1f %7.2f%% %9.2f %9.2f %9.2f %9.2f %9.2f%n", entry.getKey(),
+                    summary.get("count"), summary.get("throughput"), summary.get("errorRate"), summary.get("p50Ms"),
+                    summary.get("p90Ms"), summary.get("p99Ms"), summary.get("p999Ms"), summary.get("maxMs"));
+        }
+        report.put("endpoints", endpoints);
+        EndpointStats search = stats.get("search");
+        if (searchQueries != null && search != null) {
+            int searches = search.count();
+            report.put("searchDbQueries", searchQueries);
+            System.out.printf("%nsearch   %d requests ran %d database queries (%.1f requests per query)%n", searches,
+                    searchQueries, searchQueries == 0 ? 0.0 : (double) searches / searchQueries);
+        }
+        File file = new File(options.get("report"));
+        objectMapper.copy().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, report);
+        System.out.printf("%nReport written to %s%n", file.getAbsolutePath());
+    }
+
+    private static List<String> parseMix(String mix) {
+        List<String> weighted = new ArrayList<>();
+        for (String part : mix.split(",")) {
+            String[] weight = part.split(":");
+            for (int i = 0; i < Integer.parseInt(weight[1]); i++) {
+                weighted.add(weight[0].trim());
+            }
+        }
+        return weighted;
+    }
+
+    private static final class EndpointStats {
+
+        private final AtomicLong errors = new AtomicLong();
+        private long[] latencies = new long[1024];
+        private int count;
+
+        synchronized void record(long latencyNanos, boolean success) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+            if (!success) {
+                errors.incrementAndGet();
+            }
+        }
+
+        synchronized int count() {
+            return count;
+        }
+
+        synchronized Map<String, Object> summary(double seconds) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("count", count);
+            summary.put("throughput", count / seconds);
+            summary.put("errorRate", count == 0 ? 0.0 : errors.get() * 100.0 / count);
+            summary.put("p50Ms", percentile(sorted, 0.50));
+            summary.put("p90Ms", percentile(sorted, 0.90));
+            summary.put("p99Ms", percentile(sorted, 0.99));
+            summary.put("p999Ms", percentile(sorted, 0.999));
+            summary.put("maxMs", count == 0 ? 0.0 : sorted[count - 1] / 1e6);
+            return summary;
+        }
+
+        private static double percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0.0;
+            }
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.max(index, 0)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.clearsolution.restfulapitask.benchmark;
+
+import com.clearsolution.restfulapitask.data.DataContainer;
+import com.clearsolution.restfulapitask.model.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encode time of a search result per response format, optionally gzipped as the server compression would.
+ * The payload size of each combination is printed once during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int size;
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"false", "true"})
+    private boolean gzip;
+
+    private ObjectMapper objectMapper;
+    private DataContainer<List<User>> container;
+
+    @Setup
+    public void setUp() throws IOException {
+        // Same modules and date handling as the mappers Spring Boot configures for the controllers
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        objectMapper = switch (format) {
+            case "cbor" -> builder.factory(new CBORFactory()).build();
+            case "smile" -> builder.factory(new SmileFactory()).build();
+            default -> builder.build();
+        };
+        container = new DataContainer<>(BenchmarkUsers.generate(size, new Random(42)));
+        System.out.printf("%n%s%s payload for %d users: %d bytes%n", format, gzip ? "+gzip" : "", size, serializeSearchResult().length);
+    }
+
+    @Benchmark
+    public byte[] serializeSearchResult() throws IOException {
+        if (!gzip) {
+            return objectMapper.writeValueAsBytes(container);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(out, container);
+        }
+        return bytes.toByteArray();
+    }
+}
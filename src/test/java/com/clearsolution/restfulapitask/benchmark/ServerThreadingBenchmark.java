@@ -0,0 +1,63 @@
+package com.clearsolution.restfulapitask.benchmark;
+
+import com.clearsolution.restfulapitask.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search throughput over HTTP with more concurrent clients than Tomcat has platform worker threads, once with
+ * platform threads and once with virtual threads and the connection limiter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(400)
+@Fork(1)
+public class ServerThreadingBenchmark {
+
+    @Param({"false", "true"})
+    private boolean virtualThreads;
+
+    @Param({"10000"})
+    private int users;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String searchUri;
+
+    @Setup
+    public void setUp() {
+        // 400 clients searching at once would mostly be shed by admission control and not reach the threads compared here
+        context = BenchmarkUsers.startServer("threading_benchmark", "spring.threads.virtual.enabled=" + virtualThreads,
+                "app.admission.enabled=false");
+        BenchmarkUsers.seed(context.getBean(UserService.class), users, new Random(42));
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        searchUri = "http://localhost:" + port + "/v1/api/users/search";
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int search() throws IOException, InterruptedException {
+        LocalDate from = BenchmarkUsers.OLDEST_BIRTHDAY.plusDays(ThreadLocalRandom.current().nextInt(BenchmarkUsers.BIRTHDAY_SPAN_DAYS));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(searchUri + "?from=" + from + "&to=" + from.plusDays(30))).build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
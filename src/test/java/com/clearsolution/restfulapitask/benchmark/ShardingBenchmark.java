@@ -0,0 +1,64 @@
+package com.clearsolution.restfulapitask.benchmark;
+
+import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrent creates and birthday searches with the users hash-sharded over {@code shards} in-memory H2 databases.
+ * One shard still goes through the sharded service, so the difference to the plain setup is routing overhead only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ShardingBenchmark {
+
+    @Param({"1", "2", "4"})
+    private int shards;
+
+    @Param({"200000"})
+    private int users;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+
+    @Setup
+    public void setUp() {
+        List<String> urls = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            urls.add("jdbc:h2:mem:shard_benchmark_" + i + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH");
+        }
+        context = BenchmarkUsers.start("shard_benchmark", "app.sharding.enabled=true",
+                "app.sharding.urls=" + String.join(",", urls));
+        userService = context.getBean(UserService.class);
+        BenchmarkUsers.seed(userService, users, new Random(42));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void createUser() {
+        userService.createUser(BenchmarkUsers.generate(ThreadLocalRandom.current()));
+    }
+
+    @Benchmark
+    public List<User> searchOneWeek() {
+        LocalDate from = BenchmarkUsers.OLDEST_BIRTHDAY.plusDays(ThreadLocalRandom.current().nextInt(BenchmarkUsers.BIRTHDAY_SPAN_DAYS));
+        return userService.findUsersByBirthdayRange(from, from.plusDays(7));
+    }
+}
@@ -0,0 +1,86 @@
+package com.clearsolution.restfulapitask.benchmark;
+
+import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.model.UserBirthday;
+import com.clearsolution.restfulapitask.repository.UserRepository;
+import com.clearsolution.restfulapitask.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * "Birthdays in the next week" through the indexed month/day key versus scanning every birthday and filtering in
+ * the application, which is what the full-date range query forces. The indexed lookup only grows with the number of
+ * users in the window, while the scan grows with the whole table. Run with
+ * {@code mvn -Pbenchmark verify -Djmh.args="UpcomingBirthdaysBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class UpcomingBirthdaysBenchmark {
+
+    private static final int WINDOW_DAYS = 7;
+
+    @Param({"1000000", "4000000"})
+    private int users;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private UserRepository userRepository;
+    private TransactionTemplate readOnlyTransaction;
+    private final Random random = new Random(42);
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkUsers.start("upcoming_benchmark");
+        userService = context.getBean(UserService.class);
+        userRepository = context.getBean(UserRepository.class);
+        readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTransaction.setReadOnly(true);
+        BenchmarkUsers.seed(userService, users, random);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<User> monthDayIndex() {
+        return userService.findUsersWithUpcomingBirthdays(randomDay(), WINDOW_DAYS);
+    }
+
+    @Benchmark
+    public long fullScan() {
+        LocalDate from = randomDay();
+        LocalDate to = from.plusDays(WINDOW_DAYS);
+        return readOnlyTransaction.execute(status -> {
+            try (Stream<UserBirthday> birthdays = userRepository.streamAllBirthdays()) {
+                return birthdays.filter(birthday -> isWithin(MonthDay.from(birthday.birthday()), from, to)).count();
+            }
+        });
+    }
+
+    private LocalDate randomDay() {
+        return LocalDate.of(2023, 1, 1).plusDays(random.nextInt(365));
+    }
+
+    private static boolean isWithin(MonthDay monthDay, LocalDate from, LocalDate to) {
+        LocalDate next = monthDay.atYear(from.getYear());
+        if (next.isBefore(from)) {
+            next = monthDay.atYear(from.getYear() + 1);
+        }
+        return !next.isAfter(to);
+    }
+}
@@ -0,0 +1,96 @@
+package com.clearsolution.restfulapitask.benchmark;
+
+import com.clearsolution.restfulapitask.data.BatchItemResult;
+import com.clearsolution.restfulapitask.data.CursorPage;
+import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UserServiceImpl write and lookup paths against an in-memory H2 database seeded with {@code users} rows.
+ * {@link #createUsersBatch()} reports time per user, so it compares directly with {@link #createUser()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserServiceBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"10000"})
+    private int users;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private final Random random = new Random(42);
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkUsers.start("service_benchmark");
+        userService = context.getBean(UserService.class);
+        BenchmarkUsers.seed(userService, users, random);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void createUser() {
+        userService.createUser(BenchmarkUsers.generate(random));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<BatchItemResult> createUsersBatch() {
+        return userService.createUsers(BenchmarkUsers.generate(BATCH_SIZE, random));
+    }
+
+    @Benchmark
+    public User getUser() {
+        return userService.getUser(randomSeededId());
+    }
+
+    @Benchmark
+    public User updateUser() {
+        return userService.updateUser(randomSeededId(), BenchmarkUsers.generate(random), null);
+    }
+
+    @Benchmark
+    public User updateUsersFields() {
+        User fields = new User();
+        fields.setPhoneNumber("+380501234567");
+        return userService.updateUsersFields(randomSeededId(), fields, null);
+    }
+
+    @Benchmark
+    public List<User> findUsersByBirthdayRange() {
+        LocalDate from = randomBirthday();
+        return userService.findUsersByBirthdayRange(from, from.plusDays(30));
+    }
+
+    @Benchmark
+    public CursorPage<List<User>> findUsersPageByBirthdayRange() {
+        LocalDate from = randomBirthday();
+        return userService.findUsersByBirthdayRange(from, from.plusYears(5), null, 100);
+    }
+
+    private Long randomSeededId() {
+        // Seeded ids come from a fresh sequence, so they are 1..users
+        return 1L + random.nextInt(users);
+    }
+
+    private LocalDate randomBirthday() {
+        return BenchmarkUsers.OLDEST_BIRTHDAY.plusDays(random.nextInt(BenchmarkUsers.BIRTHDAY_SPAN_DAYS));
+    }
+}
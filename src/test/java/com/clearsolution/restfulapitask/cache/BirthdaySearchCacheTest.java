@@ -0,0 +1,152 @@
+package com.clearsolution.restfulapitask.cache;
+
+import com.clearsolution.restfulapitask.data.BirthdayRange;
+import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.replica.ReadYourWritesFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BirthdaySearchCacheTest {
+
+    private static final LocalDate FROM = LocalDate.of(1990, 1, 1);
+    private static final LocalDate TO = LocalDate.of(1999, 12, 31);
+
+    private final BirthdaySearchCache cache = new BirthdaySearchCache(true, Duration.ofMinutes(1), 100);
+    private final AtomicInteger queries = new AtomicInteger();
+
+    @Test
+    void testResultIsKeptAndUnmodifiable() {
+        List<User> first = search();
+        List<User> second = search();
+
+        assertEquals(first, second);
+        assertEquals(1, queries.get());
+        assertEquals(1, cache.queryCount());
+        assertThrows(UnsupportedOperationException.class, () -> first.add(new User()));
+    }
+
+    @Test
+    void testEveryCallerGetsItsOwnUsers() {
+        search().get(0).setFirstName("Changed");
+
+        assertNull(search().get(0).getFirstName());
+        assertEquals(1, queries.get());
+    }
+
+    @Test
+    void testRequestPinnedToPrimaryBypassesKeptResults() throws Exception {
+        search();
+        List<List<User>> pinned = new ArrayList<>();
+
+        // A client's write pins its following requests to the primary
+        new ReadYourWritesFilter(Duration.ofMinutes(1)).doFilter(new MockHttpServletRequest("POST", "/v1/api/users/create"),
+                new MockHttpServletResponse(), (request, response) -> pinned.add(search()));
+
+        assertEquals(1, pinned.size());
+        assertEquals(2, queries.get());
+        search();
+        assertEquals(2, queries.get());
+    }
+
+    @Test
+    void testNewBirthdayInRangeInvalidates() {
+        search();
+        cache.invalidate(LocalDate.of(1995, 6, 1));
+        search();
+
+        assertEquals(2, queries.get());
+    }
+
+    @Test
+    void testBirthdayOutsideRangeKeepsResult() {
+        search();
+        cache.invalidate(LocalDate.of(1980, 6, 1));
+        search();
+
+        assertEquals(1, queries.get());
+    }
+
+    @Test
+    void testUserMovedOutOfRangeInvalidates() {
+        search();
+        cache.invalidate(7L, LocalDate.of(1980, 6, 1));
+        search();
+
+        assertEquals(2, queries.get());
+    }
+
+    @Test
+    void testDeletedUserInvalidates() {
+        search();
+        cache.invalidate(7L, null);
+        search();
+        cache.invalidate(8L, null);
+        search();
+
+        assertEquals(2, queries.get());
+    }
+
+    @Test
+    void testWriteDuringQueryKeepsResultOut() {
+        cache.get(FROM, TO, () -> {
+            cache.invalidate(LocalDate.of(1980, 6, 1));
+            return users();
+        });
+        search();
+
+        assertEquals(2, queries.get());
+    }
+
+    @Test
+    void testTransactionCompletionInvalidatesAgain() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.invalidate(LocalDate.of(1995, 6, 1));
+            // A search between the write and its commit still sees the old rows
+            search();
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        search();
+
+        assertEquals(2, queries.get());
+    }
+
+    @Test
+    void testDisabledRunsEveryQuery() {
+        BirthdaySearchCache disabled = new BirthdaySearchCache(false, Duration.ofMinutes(1), 100);
+
+        disabled.get(FROM, TO, this::users);
+        disabled.get(FROM, TO, this::users);
+
+        assertEquals(2, queries.get());
+        assertEquals(2, disabled.queryCount());
+        assertArrayEquals(new byte[]{1}, disabled.getResponse(new BirthdayRange(FROM, TO), () -> new byte[]{1}));
+    }
+
+    private List<User> search() {
+        return cache.get(FROM, TO, this::users);
+    }
+
+    private List<User> users() {
+        queries.incrementAndGet();
+        User user = new User();
+        user.setId(7L);
+        user.setBirthday(LocalDate.of(1992, 3, 4));
+        return new ArrayList<>(List.of(user));
+    }
+}
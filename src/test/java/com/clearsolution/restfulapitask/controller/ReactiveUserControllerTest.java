@@ -0,0 +1,197 @@
+package com.clearsolution.restfulapitask.controller;
+
+import com.clearsolution.restfulapitask.config.ReactiveConfig;
+import com.clearsolution.restfulapitask.exception.UserNotFoundException;
+import com.clearsolution.restfulapitask.exception.UserVersionMismatchException;
+import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.service.ReactiveUserService;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@WebFluxTest(ReactiveUserController.class)
+@Import(ReactiveConfig.class)
+@ActiveProfiles("reactive")
+class ReactiveUserControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private ReactiveUserService userService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setId(1L);
+        user.setFirstName("Test");
+        user.setLastName("Test");
+        user.setEmail("example@org.ua");
+        user.setBirthday(LocalDate.of(1990, 5, 11));
+    }
+
+    @Test
+    void testCreateUser() {
+        when(userService.createUser(any(User.class))).thenReturn(Mono.just(user));
+
+        webTestClient.post().uri("/v1/api/users/create")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"firstName\": \"Test\", \"lastName\": \"Test\", \"email\": \"example@org.ua\", \"birthday\": \"1990-05-11\"}")
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody().jsonPath("$.data.id").isEqualTo(1);
+    }
+
+    @Test
+    void testCreateUserFromCborAsCbor() throws Exception {
+        when(userService.createUser(any(User.class))).thenReturn(Mono.just(user));
+        CBORMapper cborMapper = new CBORMapper();
+
+        byte[] body = webTestClient.post().uri("/v1/api/users/create")
+                .contentType(MediaType.parseMediaType("application/cbor"))
+                .accept(MediaType.parseMediaType("application/cbor"))
+                .bodyValue(cborMapper.writeValueAsBytes(cborMapper.createObjectNode()
+                        .put("firstName", "Test").put("lastName", "Test")
+                        .put("email", "example@org.ua").put("birthday", "1990-05-11")))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(byte[].class).returnResult().getResponseBody();
+
+        assertEquals("1990-05-11", cborMapper.readTree(body).get("data").get("birthday").asText());
+    }
+
+    @Test
+    void testSearchAsSmile() throws Exception {
+        when(userService.findUsersByBirthdayRange(any(LocalDate.class), any(LocalDate.class))).thenReturn(Flux.just(user));
+
+        byte[] body = webTestClient.get().uri("/v1/api/users/search?from=1990-01-01&to=2000-01-01")
+                .accept(MediaType.parseMediaType("application/x-jackson-smile"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(byte[].class).returnResult().getResponseBody();
+
+        assertEquals("1990-05-11", new SmileMapper().readTree(body).get("data").get(0).get("birthday").asText());
+    }
+
+    @Test
+    void testCreateInvalidUser() {
+        webTestClient.post().uri("/v1/api/users/create")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"firstName\": \"Test\", \"email\": \"wrong\"}")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verify(userService, never()).createUser(any(User.class));
+    }
+
+    @Test
+    void testGetUserNotFound() {
+        when(userService.getUser(1L)).thenReturn(Mono.error(new UserNotFoundException("User not found")));
+
+        webTestClient.get().uri("/v1/api/users/1")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody(String.class).isEqualTo("User not found");
+    }
+
+    @Test
+    void testDeleteUser() {
+        when(userService.deleteUser(1L)).thenReturn(Mono.empty());
+
+        webTestClient.delete().uri("/v1/api/users/1")
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    void testUpdateUserIfMatch() {
+        user.setVersion(4L);
+        when(userService.updateUser(eq(1L), any(User.class), eq(3L))).thenReturn(Mono.just(user));
+
+        webTestClient.put().uri("/v1/api/users/1")
+                .header("If-Match", "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"firstName\": \"Test\", \"lastName\": \"Test\", \"email\": \"example@org.ua\", \"birthday\": \"1990-05-11\"}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"4\"");
+    }
+
+    @Test
+    void testUpdateFieldsIfMatchMismatch() {
+        when(userService.updateUsersFields(eq(1L), any(User.class), eq(3L)))
+                .thenReturn(Mono.error(new UserVersionMismatchException("User was modified by another request")));
+
+        webTestClient.patch().uri("/v1/api/users/1")
+                .header("If-Match", "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"firstName\": \"Test\"}")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @Test
+    void testUpdateFieldsMalformedIfMatch() {
+        webTestClient.patch().uri("/v1/api/users/1")
+                .header("If-Match", "3")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"firstName\": \"Test\"}")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verify(userService, never()).updateUsersFields(any(), any(), any());
+    }
+
+    @Test
+    void testSearchUserByBirthdayRange() {
+        when(userService.findUsersByBirthdayRange(any(LocalDate.class), any(LocalDate.class))).thenReturn(Flux.just(user));
+
+        webTestClient.get().uri("/v1/api/users/search?from=1990-01-01&to=2000-01-01")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.data[0].email").isEqualTo("example@org.ua")
+                .jsonPath("$.data[0].birthday").isEqualTo("1990-05-11");
+    }
+
+    @Test
+    void testSearchPageRejectsOversizedPage() {
+        webTestClient.get().uri("/v1/api/users/search/page?from=1990-01-01&to=2000-01-01&size=100000")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void testStreamByBirthdayRange() {
+        when(userService.findUsersByBirthdayRange(any(LocalDate.class), any(LocalDate.class))).thenReturn(Flux.just(user, user));
+
+        String body = webTestClient.get().uri("/v1/api/users/search/stream?from=1990-01-01&to=2000-01-01")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class).returnResult().getResponseBody();
+
+        assertEquals(2, body.split("\n").length);
+    }
+}
@@ -1,7 +1,30 @@
 package com.clearsolution.restfulapitask.controller;
 
+import com.clearsolution.restfulapitask.cache.BirthdaySearchCache;
+import com.clearsolution.restfulapitask.config.BinaryFormatConfig;
+import com.clearsolution.restfulapitask.data.BatchItemResult;
+import com.clearsolution.restfulapitask.data.BirthdayCount;
+import com.clearsolution.restfulapitask.data.BirthdayGrouping;
+import com.clearsolution.restfulapitask.data.CursorPage;
+import com.clearsolution.restfulapitask.data.ImportFormat;
+import com.clearsolution.restfulapitask.data.ImportRejection;
+import com.clearsolution.restfulapitask.data.ImportSummary;
+import com.clearsolution.restfulapitask.data.IngestStatus;
+import com.clearsolution.restfulapitask.events.UserEventLog;
+import com.clearsolution.restfulapitask.events.UserEventStreams;
+import com.clearsolution.restfulapitask.exception.IngestQueueFullException;
+import com.clearsolution.restfulapitask.exception.MalformedImportException;
+import com.clearsolution.restfulapitask.exception.UserNotFoundException;
+import com.clearsolution.restfulapitask.exception.UserVersionMismatchException;
+import com.clearsolution.restfulapitask.ingest.UserIngestQueue;
 import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.model.UserField;
+import com.clearsolution.restfulapitask.service.UserExportService;
+import com.clearsolution.restfulapitask.service.UserImportService;
 import com.clearsolution.restfulapitask.service.UserService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -9,21 +32,41 @@ import org.mockito.InjectMocks;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
 @WebMvcTest(UserController.class)
+@Import({BinaryFormatConfig.class, BirthdaySearchCache.class, UserEventLog.class, UserEventStreams.class})
 class UserControllerTest {
 
     @Autowired
@@ -32,6 +75,18 @@ class UserControllerTest {
     @MockBean
     private UserService userService;
 
+    @MockBean
+    private UserImportService userImportService;
+
+    @MockBean
+    private UserExportService userExportService;
+
+    @MockBean
+    private UserIngestQueue userIngestQueue;
+
+    @Autowired
+    private UserEventLog userEventLog;
+
     @InjectMocks
     private UserController userController;
 
@@ -59,9 +114,209 @@ class UserControllerTest {
         verify(userService, times(1)).createUser(any(User.class));
     }
 
+    @Test
+    void testCreateUserAsync() throws Exception {
+        UUID trackingId = UUID.randomUUID();
+        when(userIngestQueue.isEnabled()).thenReturn(true);
+        when(userIngestQueue.submit(any(User.class))).thenReturn(trackingId);
+
+        mockMvc.perform(post("/v1/api/users/create")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\": \"Test\", \"lastName\": \"Test\", \"email\": \"example@org.ua\", \"birthday\": \"1990-05-11\"}"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/v1/api/users/create/status/" + trackingId))
+                .andExpect(jsonPath("$.data.state").value("QUEUED"));
+
+        verify(userService, never()).createUser(any(User.class));
+    }
+
+    @Test
+    void testCreateUserAsyncQueueFull() throws Exception {
+        when(userIngestQueue.isEnabled()).thenReturn(true);
+        when(userIngestQueue.submit(any(User.class))).thenThrow(new IngestQueueFullException("Too many pending creates, retry later"));
+
+        mockMvc.perform(post("/v1/api/users/create")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\": \"Test\", \"lastName\": \"Test\", \"email\": \"example@org.ua\", \"birthday\": \"1990-05-11\"}"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"));
+    }
+
+    @Test
+    void testCreateStatus() throws Exception {
+        UUID trackingId = UUID.randomUUID();
+        when(userIngestQueue.status(trackingId)).thenReturn(new IngestStatus(trackingId, IngestStatus.State.CREATED, 7L, List.of()));
+
+        mockMvc.perform(get("/v1/api/users/create/status/" + trackingId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.state").value("CREATED"))
+                .andExpect(jsonPath("$.data.userId").value(7));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCreateUsersBatch() throws Exception {
+        when(userService.createUsers(any(List.class)))
+                .thenReturn(List.of(BatchItemResult.created(0, 1L), BatchItemResult.rejected(1, List.of("Incorrect email"))));
+
+        mockMvc.perform(post("/v1/api/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"firstName\": \"Test\", \"lastName\": \"Test\", \"email\": \"example@org.ua\", \"birthday\": \"1990-05-11\"}," +
+                                "{\"firstName\": \"Test\", \"lastName\": \"Test\", \"email\": \"wrong\", \"birthday\": \"1990-05-11\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].created").value(true))
+                .andExpect(jsonPath("$.data[0].id").value(1))
+                .andExpect(jsonPath("$.data[1].created").value(false))
+                .andExpect(jsonPath("$.data[1].errors[0]").value("Incorrect email"));
+    }
+
+    @Test
+    void testCreateUsersEmptyBatch() throws Exception {
+        mockMvc.perform(post("/v1/api/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testImportCsv() throws Exception {
+        when(userImportService.importUsers(any(), eq(ImportFormat.CSV)))
+                .thenReturn(new ImportSummary(1, 1, List.of(new ImportRejection(3, List.of("Incorrect email")))));
+
+        mockMvc.perform(post("/v1/api/users/import")
+                        .contentType("text/csv")
+                        .content("email,firstName,lastName,birthday\nexample@org.ua,Test,Test,1990-05-11\nwrong,Test,Test,1990-05-11\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.imported").value(1))
+                .andExpect(jsonPath("$.data.rejections[0].line").value(3))
+                .andExpect(jsonPath("$.data.rejections[0].errors[0]").value("Incorrect email"));
+    }
+
+    @Test
+    void testImportWithUnknownColumn() throws Exception {
+        when(userImportService.importUsers(any(), eq(ImportFormat.CSV))).thenThrow(new MalformedImportException("Unknown column: password"));
+
+        mockMvc.perform(post("/v1/api/users/import")
+                        .contentType("text/csv")
+                        .content("email,password\n"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testExportCsv() throws Exception {
+        when(userExportService.exportUsers(any(), eq(ImportFormat.CSV))).thenAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(0).write("id,email\n1,example@org.ua\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        });
+
+        mockMvc.perform(get("/v1/api/users/export").param("format", "CSV"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users.csv\""))
+                .andExpect(content().string("id,email\n1,example@org.ua\n"));
+    }
+
+    @Test
+    void testExportDefaultsToNdjson() throws Exception {
+        mockMvc.perform(get("/v1/api/users/export"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON));
+
+        verify(userExportService).exportUsers(any(), eq(ImportFormat.NDJSON));
+    }
+
+    @Test
+    void testGetUser() throws Exception {
+        when(userService.getUser(1L)).thenReturn(user);
+
+        mockMvc.perform(get("/v1/api/users/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.id").value(1))
+                .andExpect(jsonPath("$.data.email").value("example@org.ua"));
+    }
+
+    @Test
+    void testCreateUserFromCbor() throws Exception {
+        doNothing().when(userService).createUser(any(User.class));
+        User request = new User();
+        request.setFirstName("Test");
+        request.setLastName("Test");
+        request.setEmail("example@org.ua");
+        request.setBirthday(LocalDate.of(1990, 5, 11));
+
+        mockMvc.perform(post("/v1/api/users/create")
+                        .contentType("application/cbor")
+                        .content(new CBORMapper().findAndRegisterModules().writeValueAsBytes(request)))
+                .andExpect(status().isCreated());
+
+        verify(userService).createUser(argThat(created -> LocalDate.of(1990, 5, 11).equals(created.getBirthday())));
+    }
+
+    @Test
+    void testGetUserAsCbor() throws Exception {
+        when(userService.getUser(1L)).thenReturn(user);
+
+        byte[] body = mockMvc.perform(get("/v1/api/users/1").accept("application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode data = new CBORMapper().readTree(body).get("data");
+        assertEquals("example@org.ua", data.get("email").asText());
+        assertEquals("1990-05-11", data.get("birthday").asText());
+    }
+
+    @Test
+    void testGetUserAsSmile() throws Exception {
+        when(userService.getUser(1L)).thenReturn(user);
+
+        byte[] body = mockMvc.perform(get("/v1/api/users/1").accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertEquals("1990-05-11", new SmileMapper().readTree(body).get("data").get("birthday").asText());
+    }
+
+    @Test
+    void testGetUserNotFound() throws Exception {
+        when(userService.getUser(1L)).thenThrow(new UserNotFoundException("User not found"));
+
+        mockMvc.perform(get("/v1/api/users/1"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testGetUserByEmail() throws Exception {
+        user.setVersion(2L);
+        when(userService.getUserByEmail("example@org.ua")).thenReturn(user);
+
+        mockMvc.perform(get("/v1/api/users/by-email").param("email", "example@org.ua"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2\""))
+                .andExpect(jsonPath("$.data.id").value(1));
+    }
+
+    @Test
+    void testGetUserByInvalidEmail() throws Exception {
+        mockMvc.perform(get("/v1/api/users/by-email").param("email", "not-an-email"))
+                .andExpect(status().isBadRequest());
+
+        verify(userService, never()).getUserByEmail(any());
+    }
+
+    @Test
+    void testCreateUserWithDuplicateEmail() throws Exception {
+        doThrow(new DataIntegrityViolationException("uk_users_email")).when(userService).createUser(any(User.class));
+
+        mockMvc.perform(post("/v1/api/users/create")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\": \"Test\", \"lastName\": \"Test\", \"email\": \"example@org.ua\", \"birthday\": \"1990-05-11\"}"))
+                .andExpect(status().isConflict());
+    }
+
     @Test
     void testUpdateUser() throws Exception {
-        when(userService.updateUser(any(Long.class), any(User.class))).thenReturn(user);
+        when(userService.updateUser(any(Long.class), any(User.class), isNull())).thenReturn(user);
 
         mockMvc.perform(put("/v1/api/users/1")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -72,12 +327,12 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.data.email").value("example@org.ua"))
                 .andExpect(jsonPath("$.data.birthday").value("1990-05-11"));
 
-        verify(userService, times(1)).updateUser(eq(1L), any(User.class));
+        verify(userService, times(1)).updateUser(eq(1L), any(User.class), isNull());
     }
 
     @Test
     void testUpdateFields() throws Exception {
-        when(userService.updateUsersFields(any(Long.class), any(User.class))).thenReturn(user);
+        when(userService.updateUsersFields(any(Long.class), any(User.class), isNull())).thenReturn(user);
 
         mockMvc.perform(patch("/v1/api/users/1")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -85,7 +340,101 @@ class UserControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.data.firstName").value("Test"));
 
-        verify(userService, times(1)).updateUsersFields(eq(1L), any(User.class));
+        verify(userService, times(1)).updateUsersFields(eq(1L), any(User.class), isNull());
+    }
+
+    @Test
+    void testGetUserNotModified() throws Exception {
+        user.setVersion(3L);
+        when(userService.getUser(1L)).thenReturn(user);
+
+        mockMvc.perform(get("/v1/api/users/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""));
+
+        mockMvc.perform(get("/v1/api/users/1").header("If-None-Match", "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void testUpdateFieldsIfMatch() throws Exception {
+        user.setVersion(4L);
+        when(userService.updateUsersFields(eq(1L), any(User.class), eq(3L))).thenReturn(user);
+
+        mockMvc.perform(patch("/v1/api/users/1")
+                        .header("If-Match", "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\": \"Test\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""));
+    }
+
+    @Test
+    void testUpdateUserIfMatchMismatch() throws Exception {
+        when(userService.updateUser(eq(1L), any(User.class), eq(3L)))
+                .thenThrow(new UserVersionMismatchException("User was modified by another request"));
+
+        mockMvc.perform(put("/v1/api/users/1")
+                        .header("If-Match", "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\": \"Test\", \"lastName\": \"Test\", \"email\": \"example@org.ua\", \"birthday\": \"1990-05-11\"}"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void testUpdateUserIfMatchList() throws Exception {
+        user.setVersion(4L);
+        when(userService.getUser(1L)).thenReturn(user);
+        when(userService.updateUser(eq(1L), any(User.class), eq(4L))).thenReturn(user);
+
+        mockMvc.perform(put("/v1/api/users/1")
+                        .header("If-Match", "\"3\", W/\"5\",\"4\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\": \"Test\", \"lastName\": \"Test\", \"email\": \"example@org.ua\", \"birthday\": \"1990-05-11\"}"))
+                .andExpect(status().isOk());
+        verify(userService).updateUser(eq(1L), any(User.class), eq(4L));
+    }
+
+    @Test
+    void testUpdateFieldsIfMatchAny() throws Exception {
+        when(userService.updateUsersFields(eq(1L), any(User.class), isNull())).thenReturn(user);
+        when(userService.updateUsersFields(eq(2L), any(User.class), isNull()))
+                .thenThrow(new UserNotFoundException("User with ID 2 not found"));
+
+        mockMvc.perform(patch("/v1/api/users/1")
+                        .header("If-Match", "*")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\": \"Test\"}"))
+                .andExpect(status().isOk());
+        // There is no current version for * to match
+        mockMvc.perform(patch("/v1/api/users/2")
+                        .header("If-Match", "*")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\": \"Test\"}"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void testUpdateFieldsIfMatchNeverMatching() throws Exception {
+        mockMvc.perform(patch("/v1/api/users/1")
+                        .header("If-Match", "W/\"3\", \"abc\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\": \"Test\"}"))
+                .andExpect(status().isPreconditionFailed());
+        verify(userService, never()).updateUsersFields(any(), any(), any());
+    }
+
+    @Test
+    void testUpdateFieldsMalformedIfMatch() throws Exception {
+        for (String ifMatch : List.of("3", "\"3", "\"3\" \"4\"", "*, \"3\"")) {
+            mockMvc.perform(patch("/v1/api/users/1")
+                            .header("If-Match", ifMatch)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"firstName\": \"Test\"}"))
+                    .andExpect(status().isBadRequest());
+        }
+        verify(userService, never()).updateUsersFields(any(), any(), any());
     }
 
     @Test
@@ -111,4 +460,232 @@ class UserControllerTest {
 
         verify(userService, times(1)).findUsersByBirthdayRange(any(LocalDate.class), any(LocalDate.class));
     }
+
+    @Test
+    void testSearchUserByBirthdayRangeAsCbor() throws Exception {
+        when(userService.findUsersByBirthdayRange(any(LocalDate.class), any(LocalDate.class))).thenReturn(List.of(user));
+
+        byte[] body = mockMvc.perform(get("/v1/api/users/search")
+                        .param("from", LocalDate.now().minusDays(1).toString())
+                        .param("to", LocalDate.now().plusDays(1).toString())
+                        .accept("application/cbor", "application/json;q=0.5"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertEquals("example@org.ua", new CBORMapper().readTree(body).get("data").get(0).get("email").asText());
+    }
+
+    @Test
+    void testSearchUserByBirthdayRangeWithFields() throws Exception {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", 1L);
+        row.put("email", "example@org.ua");
+        when(userService.findUsersByBirthdayRange(any(LocalDate.class), any(LocalDate.class), eq(EnumSet.of(UserField.ID, UserField.EMAIL))))
+                .thenReturn(List.of(row));
+
+        mockMvc.perform(get("/v1/api/users/search")
+                        .param("from", LocalDate.now().minusDays(1).toString())
+                        .param("to", LocalDate.now().plusDays(1).toString())
+                        .param("fields", "email"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].id").value(1))
+                .andExpect(jsonPath("$.data[0].email").value("example@org.ua"))
+                .andExpect(jsonPath("$.data[0].address").doesNotExist());
+
+        verify(userService, never()).findUsersByBirthdayRange(any(LocalDate.class), any(LocalDate.class));
+    }
+
+    @Test
+    void testSearchUserByBirthdayRangeWithUnknownField() throws Exception {
+        mockMvc.perform(get("/v1/api/users/search")
+                        .param("from", LocalDate.now().minusDays(1).toString())
+                        .param("to", LocalDate.now().plusDays(1).toString())
+                        .param("fields", "email,password"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetUserWithFields() throws Exception {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", 1L);
+        row.put("birthday", LocalDate.of(1990, 5, 11));
+        row.put("version", 3L);
+        when(userService.getUser(1L, EnumSet.of(UserField.ID, UserField.BIRTHDAY, UserField.VERSION))).thenReturn(row);
+
+        mockMvc.perform(get("/v1/api/users/1").param("fields", "birthday,version"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(jsonPath("$.data.birthday").value("1990-05-11"))
+                .andExpect(jsonPath("$.data.email").doesNotExist());
+    }
+
+    @Test
+    void testCountByBirthday() throws Exception {
+        when(userService.countUsersByBirthday(LocalDate.of(1990, 1, 1), LocalDate.of(1990, 12, 31), BirthdayGrouping.MONTH))
+                .thenReturn(List.of(new BirthdayCount("1990-05", 3)));
+
+        mockMvc.perform(get("/v1/api/users/stats/birthdays")
+                        .param("from", "1990-01-01")
+                        .param("to", "1990-12-31")
+                        .param("groupBy", "MONTH"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].group").value("1990-05"))
+                .andExpect(jsonPath("$.data[0].count").value(3));
+    }
+
+    @Test
+    void testCountByBirthdayRejectsUnknownGrouping() throws Exception {
+        mockMvc.perform(get("/v1/api/users/stats/birthdays")
+                        .param("from", "1990-01-01")
+                        .param("to", "1990-12-31")
+                        .param("groupBy", "week"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testSearchUpcomingBirthdays() throws Exception {
+        when(userService.findUsersWithUpcomingBirthdays(any(LocalDate.class), eq(30))).thenReturn(List.of(user));
+
+        mockMvc.perform(get("/v1/api/users/birthdays/upcoming").param("days", "30"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].email").value("example@org.ua"))
+                .andExpect(jsonPath("$.data[0].birthMonthDay").doesNotExist());
+    }
+
+    @Test
+    void testSearchUpcomingBirthdaysRejectsLongWindow() throws Exception {
+        mockMvc.perform(get("/v1/api/users/birthdays/upcoming").param("days", "400"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testSearchPageByBirthdayRange() throws Exception {
+        when(userService.findUsersByBirthdayRange(any(LocalDate.class), any(LocalDate.class), isNull(), eq(1)))
+                .thenReturn(new CursorPage<>(List.of(user), "next"));
+
+        mockMvc.perform(get("/v1/api/users/search/page")
+                        .param("from", "1990-01-01")
+                        .param("to", "2000-01-01")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].email").value("example@org.ua"))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
+    @Test
+    void testSearchPageRejectsOversizedPage() throws Exception {
+        mockMvc.perform(get("/v1/api/users/search/page")
+                        .param("from", "1990-01-01")
+                        .param("to", "2000-01-01")
+                        .param("size", "100000"))
+                .andExpect(status().isBadRequest());
+
+        verify(userService, never()).findUsersByBirthdayRange(any(LocalDate.class), any(LocalDate.class), any(), anyInt());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testStreamByBirthdayRange() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<User> consumer = invocation.getArgument(2);
+            consumer.accept(user);
+            consumer.accept(user);
+            return null;
+        }).when(userService).streamUsersByBirthdayRange(any(LocalDate.class), any(LocalDate.class), any(Consumer.class));
+
+        String body = mockMvc.perform(get("/v1/api/users/search/stream")
+                        .param("from", "1990-01-01")
+                        .param("to", "2000-01-01"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"email\":\"example@org.ua\""));
+    }
+
+    @Test
+    void testPollEvents() throws Exception {
+        long start = userEventLog.lastSequence();
+        userEventLog.created(user);
+        userEventLog.deleted(1L);
+
+        MvcResult poll = mockMvc.perform(get("/v1/api/users/events")
+                        .param("after", String.valueOf(start))
+                        .param("timeout", "0"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(poll))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(header().string(UserController.EVENT_SEQUENCE_HEADER, String.valueOf(start + 2)))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"type\":\"CREATED\""));
+        assertTrue(lines[0].contains("\"email\":\"example@org.ua\""));
+        assertTrue(lines[1].contains("\"sequence\":" + (start + 2)));
+    }
+
+    @Test
+    void testPollEventsWithoutPositionStartsNow() throws Exception {
+        userEventLog.deleted(1L);
+
+        MvcResult poll = mockMvc.perform(get("/v1/api/users/events").param("timeout", "0"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(poll))
+                .andExpect(status().isOk())
+                .andExpect(header().string(UserController.EVENT_SEQUENCE_HEADER, String.valueOf(userEventLog.lastSequence())))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void testPollIsAnsweredByTheNextChange() throws Exception {
+        long start = userEventLog.lastSequence();
+
+        MvcResult poll = mockMvc.perform(get("/v1/api/users/events").param("after", String.valueOf(start)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // The request thread is already back, the poll waits on the event log
+        userEventLog.deleted(1L);
+
+        String body = mockMvc.perform(asyncDispatch(poll))
+                .andExpect(status().isOk())
+                .andExpect(header().string(UserController.EVENT_SEQUENCE_HEADER, String.valueOf(start + 1)))
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(body.contains("\"type\":\"DELETED\""));
+    }
+
+    @Test
+    void testPollExpiredPosition() throws Exception {
+        mockMvc.perform(get("/v1/api/users/events").param("after", "1").param("timeout", "0"))
+                .andExpect(status().isGone());
+    }
+
+    @Test
+    void testStreamEventsResumesAfterLastEventId() throws Exception {
+        long start = userEventLog.lastSequence();
+        userEventLog.created(user);
+
+        String body = mockMvc.perform(get("/v1/api/users/events/stream")
+                        .header("Last-Event-ID", String.valueOf(start)))
+                .andExpect(request().asyncStarted())
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(body.startsWith("id:" + (start + 1) + "\nevent:created\ndata:{"));
+        assertTrue(body.endsWith("}\n\n"));
+    }
+
+    @Test
+    void testStreamExpiredPosition() throws Exception {
+        mockMvc.perform(get("/v1/api/users/events/stream").param("after", "1"))
+                .andExpect(status().isGone());
+    }
 }
@@ -0,0 +1,103 @@
+package com.clearsolution.restfulapitask.events;
+
+import com.clearsolution.restfulapitask.data.UserChangeEvent;
+import com.clearsolution.restfulapitask.exception.EventsExpiredException;
+import com.clearsolution.restfulapitask.model.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserEventLogTest {
+
+    private final UserEventLog eventLog = new UserEventLog(3, 100);
+
+    @Test
+    void testEventsAreReadInOrderFromAPosition() {
+        eventLog.created(user(1L, "a@mail.com"));
+        eventLog.updated(user(1L, "b@mail.com"));
+        eventLog.deleted(1L);
+
+        List<UserChangeEvent> events = eventLog.read(100, 10);
+
+        assertEquals(List.of(101L, 102L, 103L), events.stream().map(UserChangeEvent::sequence).toList());
+        assertEquals(List.of(UserChangeEvent.Type.CREATED, UserChangeEvent.Type.UPDATED, UserChangeEvent.Type.DELETED),
+                events.stream().map(UserChangeEvent::type).toList());
+        assertEquals("b@mail.com", events.get(1).user().getEmail());
+        assertEquals(List.of(102L), eventLog.read(101, 1).stream().map(UserChangeEvent::sequence).toList());
+        assertEquals(List.of(), eventLog.read(103, 10));
+    }
+
+    @Test
+    void testEventKeepsTheStateAtPublishTime() {
+        User user = user(1L, "a@mail.com");
+        eventLog.created(user);
+
+        user.setEmail("changed@mail.com");
+
+        assertEquals("a@mail.com", eventLog.read(100, 1).get(0).user().getEmail());
+    }
+
+    @Test
+    void testOverwrittenPositionHasExpired() {
+        eventLog.created(List.of(user(1L, "a@mail.com"), user(2L, "b@mail.com"), user(3L, "c@mail.com"), user(4L, "d@mail.com")));
+
+        assertThrows(EventsExpiredException.class, () -> eventLog.read(100, 10));
+        assertEquals(List.of(102L, 103L, 104L), eventLog.read(101, 10).stream().map(UserChangeEvent::sequence).toList());
+        // A position from before a restart, or one never handed out
+        assertThrows(EventsExpiredException.class, () -> eventLog.read(50, 10));
+        assertThrows(EventsExpiredException.class, () -> eventLog.read(105, 10));
+    }
+
+    @Test
+    void testListenersAreCalledAfterEachAppend() {
+        AtomicInteger calls = new AtomicInteger();
+        Runnable listener = calls::incrementAndGet;
+        eventLog.addListener(listener);
+
+        eventLog.deleted(7L);
+        eventLog.created(List.of(user(1L, "a@mail.com"), user(2L, "b@mail.com")));
+        eventLog.removeListener(listener);
+        eventLog.deleted(8L);
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testEventsCarryTheUserVersion() {
+        User user = user(1L, "a@mail.com");
+        user.setVersion(4L);
+        eventLog.updated(user);
+        eventLog.deleted(1L);
+
+        List<UserChangeEvent> events = eventLog.read(100, 10);
+        assertEquals(4L, events.get(0).version());
+        assertNull(events.get(1).version());
+    }
+
+    @Test
+    void testTransactionalChangesAppearOnCommitOnly() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            eventLog.created(user(1L, "a@mail.com"));
+            assertEquals(100, eventLog.lastSequence());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(101, eventLog.lastSequence());
+    }
+
+    private static User user(Long id, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(email);
+        return user;
+    }
+}
@@ -0,0 +1,100 @@
+package com.clearsolution.restfulapitask.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BirthdayIndexTest {
+
+    private BirthdayIndex birthdayIndex;
+
+    @BeforeEach
+    void setUp() {
+        birthdayIndex = new BirthdayIndex(true);
+    }
+
+    @Test
+    void testFindIdsReturnsRangeOrderedByBirthdayAndId() {
+        birthdayIndex.put(3L, LocalDate.of(1995, 6, 1));
+        birthdayIndex.put(1L, LocalDate.of(1990, 1, 1));
+        birthdayIndex.put(2L, LocalDate.of(1995, 6, 1));
+        birthdayIndex.put(4L, LocalDate.of(2001, 1, 1));
+
+        assertArrayEquals(new long[]{1L, 2L, 3L}, birthdayIndex.findIds(LocalDate.of(1990, 1, 1), LocalDate.of(2000, 12, 31)));
+        assertArrayEquals(new long[]{2L, 3L}, birthdayIndex.findIds(LocalDate.of(1995, 6, 1), LocalDate.of(1995, 6, 1)));
+        assertArrayEquals(new long[0], birthdayIndex.findIds(LocalDate.of(1980, 1, 1), LocalDate.of(1989, 12, 31)));
+    }
+
+    @Test
+    void testCountsByDayInRange() {
+        birthdayIndex.put(1L, LocalDate.of(1990, 1, 1));
+        birthdayIndex.put(2L, LocalDate.of(1995, 6, 1));
+        birthdayIndex.put(3L, LocalDate.of(1995, 6, 1));
+        birthdayIndex.put(4L, LocalDate.of(2001, 1, 1));
+        Map<LocalDate, Integer> counts = new LinkedHashMap<>();
+
+        birthdayIndex.countByDay(LocalDate.of(1990, 1, 1), LocalDate.of(2000, 12, 31), counts::put);
+
+        assertEquals(Map.of(LocalDate.of(1990, 1, 1), 1, LocalDate.of(1995, 6, 1), 2), counts);
+        assertEquals(List.of(LocalDate.of(1990, 1, 1), LocalDate.of(1995, 6, 1)), List.copyOf(counts.keySet()));
+        assertEquals(3, birthdayIndex.count(LocalDate.of(1990, 1, 1), LocalDate.of(2000, 12, 31)));
+        assertEquals(0, birthdayIndex.count(LocalDate.of(1980, 1, 1), LocalDate.of(1989, 12, 31)));
+    }
+
+    @Test
+    void testPutMovesUserToNewBirthday() {
+        birthdayIndex.put(1L, LocalDate.of(1990, 1, 1));
+        birthdayIndex.put(1L, LocalDate.of(1999, 1, 1));
+
+        assertEquals(1, birthdayIndex.size());
+        assertArrayEquals(new long[0], birthdayIndex.findIds(LocalDate.of(1990, 1, 1), LocalDate.of(1990, 1, 1)));
+        assertArrayEquals(new long[]{1L}, birthdayIndex.findIds(LocalDate.of(1999, 1, 1), LocalDate.of(1999, 1, 1)));
+    }
+
+    @Test
+    void testRemove() {
+        birthdayIndex.put(1L, LocalDate.of(1990, 1, 1));
+        birthdayIndex.put(2L, LocalDate.of(1990, 1, 1));
+
+        birthdayIndex.remove(1L);
+        birthdayIndex.remove(42L);
+
+        assertEquals(1, birthdayIndex.size());
+        assertArrayEquals(new long[]{2L}, birthdayIndex.findIds(LocalDate.of(1990, 1, 1), LocalDate.of(1990, 1, 1)));
+    }
+
+    @Test
+    void testManyUsersSurviveResizeAndRemoval() {
+        LocalDate base = LocalDate.of(1950, 1, 1);
+        for (long id = 1; id <= 20_000; id++) {
+            birthdayIndex.put(id, base.plusDays(id % 3_000));
+        }
+        for (long id = 2; id <= 20_000; id += 2) {
+            birthdayIndex.remove(id);
+        }
+
+        assertEquals(10_000, birthdayIndex.size());
+        long[] ids = birthdayIndex.findIds(base, base.plusDays(3_000));
+        assertEquals(10_000, ids.length);
+        for (long id : ids) {
+            assertEquals(1, id % 2);
+        }
+        assertTrue(birthdayIndex.estimatedBytes() > 0);
+    }
+
+    @Test
+    void testDisabledIndexIgnoresWrites() {
+        BirthdayIndex disabled = new BirthdayIndex(false);
+        disabled.put(1L, LocalDate.of(1990, 1, 1));
+        disabled.markReady();
+
+        assertFalse(disabled.isReady());
+        assertEquals(0, disabled.size());
+    }
+}
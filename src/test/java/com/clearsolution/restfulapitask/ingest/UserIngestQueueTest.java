@@ -0,0 +1,124 @@
+package com.clearsolution.restfulapitask.ingest;
+
+import com.clearsolution.restfulapitask.data.BatchItemResult;
+import com.clearsolution.restfulapitask.data.IngestStatus;
+import com.clearsolution.restfulapitask.exception.IngestQueueFullException;
+import com.clearsolution.restfulapitask.exception.IngestStatusNotFoundException;
+import com.clearsolution.restfulapitask.exception.UserAgeUnacceptableException;
+import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.service.UserService;
+import com.clearsolution.restfulapitask.validation.AgeValidator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class UserIngestQueueTest {
+
+    private final UserService userService = mock(UserService.class);
+    private final AgeValidator ageValidator = mock(AgeValidator.class);
+
+    @BeforeEach
+    void setUp() {
+        when(ageValidator.isValidAge(any())).thenReturn(true);
+        when(userService.createUsers(anyList())).thenAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            List<BatchItemResult> results = new ArrayList<>();
+            for (int i = 0; i < users.size(); i++) {
+                results.add(BatchItemResult.created(i, 100L + i));
+            }
+            return results;
+        });
+    }
+
+    @Test
+    void writesQueuedUsersAndDrainsOnStop() {
+        UserIngestQueue queue = queue(100);
+        queue.start();
+        UUID first = queue.submit(user());
+        UUID second = queue.submit(user());
+
+        queue.stop();
+
+        assertEquals(IngestStatus.State.CREATED, queue.status(first).state());
+        assertEquals(IngestStatus.State.CREATED, queue.status(second).state());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userService.createUsers(anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return List.of(BatchItemResult.created(0, 1L));
+        });
+        UserIngestQueue queue = queue(1);
+        queue.start();
+        queue.submit(user());
+        writing.await();
+        queue.submit(user());
+
+        assertThrows(IngestQueueFullException.class, () -> queue.submit(user()));
+
+        release.countDown();
+        queue.stop();
+    }
+
+    @Test
+    void rejectsAfterStop() {
+        UserIngestQueue queue = queue(10);
+        queue.start();
+        queue.stop();
+
+        assertThrows(IngestQueueFullException.class, () -> queue.submit(user()));
+    }
+
+    @Test
+    void rejectsUnderageUser() {
+        UserIngestQueue queue = queue(10);
+        when(ageValidator.isValidAge(any())).thenReturn(false);
+
+        assertThrows(UserAgeUnacceptableException.class, () -> queue.submit(user()));
+    }
+
+    @Test
+    void reportsFailedBatch() {
+        when(userService.createUsers(anyList())).thenThrow(new IllegalStateException("database down"));
+        UserIngestQueue queue = queue(10);
+        queue.start();
+        UUID trackingId = queue.submit(user());
+
+        queue.stop();
+
+        assertEquals(IngestStatus.State.FAILED, queue.status(trackingId).state());
+    }
+
+    @Test
+    void unknownTrackingId() {
+        assertThrows(IngestStatusNotFoundException.class, () -> queue(10).status(UUID.randomUUID()));
+    }
+
+    private UserIngestQueue queue(int capacity) {
+        return new UserIngestQueue(userService, ageValidator, true, capacity, 1, 50, Duration.ofMinutes(1), Duration.ofSeconds(5));
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setEmail("test@mail.com");
+        user.setFirstName("Test");
+        user.setLastName("Test");
+        user.setBirthday(LocalDate.of(1990, 5, 15));
+        return user;
+    }
+}
@@ -0,0 +1,91 @@
+package com.clearsolution.restfulapitask.replica;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The connection concurrency limit with read replicas: every pool is limited to its own size, so the primary and the
+ * replicas together hold pool size times pools connections.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReplicaConnectionLimitTest.PRIMARY_URL,
+        "spring.datasource.hikari.maximum-pool-size=2",
+        "app.datasource.concurrency-limit.enabled=true",
+        "app.datasource.concurrency-limit.acquire-timeout=200ms",
+        "app.datasource.replicas.enabled=true",
+        "app.datasource.replicas.urls=" + ReplicaConnectionLimitTest.REPLICA_URL_0 + "," + ReplicaConnectionLimitTest.REPLICA_URL_1,
+        "app.datasource.replicas.lag-query=SELECT 0",
+        "app.datasource.replicas.check-interval=1h"
+})
+class ReplicaConnectionLimitTest {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:limit_primary;DB_CLOSE_DELAY=-1;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH";
+    static final String REPLICA_URL_0 = "jdbc:h2:mem:limit_replica_0;DB_CLOSE_DELAY=-1;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH";
+    static final String REPLICA_URL_1 = "jdbc:h2:mem:limit_replica_1;DB_CLOSE_DELAY=-1;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ReplicaRouter replicaRouter;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size}")
+    private int poolSize;
+
+    private final List<Connection> held = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        replicaRouter.checkReplicas();
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        for (Connection connection : held) {
+            connection.close();
+        }
+    }
+
+    @Test
+    void testEveryPoolHasALimitOfItsOwn() throws Exception {
+        // Round robin over the two replicas
+        for (int i = 0; i < 2 * poolSize; i++) {
+            held.add(open(true));
+        }
+        for (int i = 0; i < poolSize; i++) {
+            held.add(open(false));
+        }
+
+        assertEquals(3 * poolSize, held.size());
+        assertThrows(SQLTransientConnectionException.class, () -> held.add(open(false)));
+        assertThrows(SQLTransientConnectionException.class, () -> held.add(open(true)));
+    }
+
+    /**
+     * A connection through the data source bean, which only takes a pooled connection once it is used.
+     */
+    private Connection open(boolean readOnly) throws SQLException {
+        Connection connection = dataSource.getConnection();
+        try {
+            connection.setReadOnly(readOnly);
+            connection.createStatement().execute("SELECT 1");
+            return connection;
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+    }
+}
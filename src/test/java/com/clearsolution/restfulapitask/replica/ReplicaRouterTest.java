@@ -0,0 +1,155 @@
+package com.clearsolution.restfulapitask.replica;
+
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ReplicaRouterTest {
+
+    private DataSource primary;
+    private DataSource first;
+    private DataSource second;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        primary = mock(DataSource.class);
+        first = replica(0);
+        second = replica(0);
+    }
+
+    @Test
+    void testReadsStayOnPrimaryUntilReplicasAreChecked() throws SQLException {
+        ReplicaRouter router = router(ReplicaSelection.ROUND_ROBIN);
+
+        assertSame(primary, router.route());
+
+        router.checkReplicas();
+        assertNotSame(primary, router.route());
+    }
+
+    @Test
+    void testRoundRobin() throws SQLException {
+        ReplicaRouter router = router(ReplicaSelection.ROUND_ROBIN);
+        router.checkReplicas();
+
+        for (int i = 0; i < 4; i++) {
+            router.route().getConnection().close();
+        }
+
+        // One connection each went to the lag check
+        verify(first, times(3)).getConnection();
+        verify(second, times(3)).getConnection();
+    }
+
+    @Test
+    void testLeastLoaded() throws SQLException {
+        ReplicaRouter router = router(ReplicaSelection.LEAST_LOADED);
+        router.checkReplicas();
+
+        Connection held = router.route().getConnection();
+        router.route().getConnection().close();
+        router.route().getConnection().close();
+        held.close();
+
+        verify(first, times(2)).getConnection();
+        verify(second, times(3)).getConnection();
+    }
+
+    @Test
+    void testLaggingOrFailingReplicaIsLeftOut() throws SQLException {
+        second = replica(5);
+        ReplicaRouter router = router(ReplicaSelection.ROUND_ROBIN);
+        router.checkReplicas();
+
+        for (int i = 0; i < 3; i++) {
+            router.route().getConnection();
+        }
+        verify(first, times(4)).getConnection();
+        verify(second, times(1)).getConnection();
+
+        when(first.getConnection()).thenThrow(new SQLException("down"));
+        router.checkReplicas();
+        assertSame(primary, router.route());
+    }
+
+    @Test
+    void testClientIsPinnedToPrimaryAfterWrite() throws Exception {
+        ReplicaRouter router = router(ReplicaSelection.ROUND_ROBIN);
+        router.checkReplicas();
+        ReadYourWritesFilter filter = new ReadYourWritesFilter(Duration.ofMinutes(1));
+        Map<String, DataSource> routed = new LinkedHashMap<>();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/v1/api/users/1"), new MockHttpServletResponse(),
+                (request, response) -> routed.put("read before write", router.route()));
+        MockHttpServletResponse written = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("PUT", "/v1/api/users/1"), written,
+                (request, response) -> routed.put("write", router.route()));
+        MockHttpServletRequest sameClient = new MockHttpServletRequest("GET", "/v1/api/users/1");
+        sameClient.setCookies(written.getCookie(ReadYourWritesFilter.LAST_WRITE_COOKIE));
+        filter.doFilter(sameClient, new MockHttpServletResponse(), (request, response) -> routed.put("read after write", router.route()));
+        filter.doFilter(new MockHttpServletRequest("GET", "/v1/api/users/1"), new MockHttpServletResponse(),
+                (request, response) -> routed.put("other client", router.route()));
+        MockHttpServletRequest lagPassed = new MockHttpServletRequest("GET", "/v1/api/users/1");
+        lagPassed.setCookies(new Cookie(ReadYourWritesFilter.LAST_WRITE_COOKIE, String.valueOf(System.currentTimeMillis() - 60_001)));
+        filter.doFilter(lagPassed, new MockHttpServletResponse(), (request, response) -> routed.put("lag passed", router.route()));
+
+        assertNotSame(primary, routed.get("read before write"));
+        assertSame(primary, routed.get("write"));
+        assertSame(primary, routed.get("read after write"));
+        assertNotSame(primary, routed.get("other client"));
+        assertNotSame(primary, routed.get("lag passed"));
+        assertNotSame(primary, router.route());
+    }
+
+    @Test
+    void testPreflightDoesNotPinToPrimary() throws Exception {
+        ReplicaRouter router = router(ReplicaSelection.ROUND_ROBIN);
+        router.checkReplicas();
+        ReadYourWritesFilter filter = new ReadYourWritesFilter(Duration.ofMinutes(1));
+        Map<String, DataSource> routed = new LinkedHashMap<>();
+
+        MockHttpServletRequest preflight = new MockHttpServletRequest("OPTIONS", "/v1/api/users/1");
+        preflight.addHeader("Origin", "https://example.org");
+        preflight.addHeader("Access-Control-Request-Method", "PUT");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(preflight, response, (request, ignored) -> routed.put("preflight", router.route()));
+
+        assertNull(response.getCookie(ReadYourWritesFilter.LAST_WRITE_COOKIE));
+        assertNotSame(primary, routed.get("preflight"));
+    }
+
+    private ReplicaRouter router(ReplicaSelection selection) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("first", first);
+        replicas.put("second", second);
+        return new ReplicaRouter(primary, replicas, selection, Duration.ofSeconds(2), "SELECT 0", Duration.ofSeconds(1));
+    }
+
+    private static DataSource replica(double lagSeconds) throws SQLException {
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet result = mock(ResultSet.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(result);
+        when(result.next()).thenReturn(true);
+        when(result.getDouble(1)).thenReturn(lagSeconds);
+        return dataSource;
+    }
+}
@@ -0,0 +1,117 @@
+package com.clearsolution.restfulapitask.replica;
+
+import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Two in-memory H2 databases stand in for the primary and a replica. Nothing replicates between them, so where a
+ * row can be read shows which database served the read.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReplicaRoutingTest.PRIMARY_URL,
+        "app.datasource.replicas.enabled=true",
+        "app.datasource.replicas.urls=" + ReplicaRoutingTest.REPLICA_URL,
+        "app.datasource.replicas.lag-query=SELECT 0"
+})
+@AutoConfigureMockMvc
+class ReplicaRoutingTest {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing_primary;DB_CLOSE_DELAY=-1;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH";
+    static final String REPLICA_URL = "jdbc:h2:mem:routing_replica;DB_CLOSE_DELAY=-1;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH";
+
+    private static final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ReplicaRouter replicaRouter;
+
+    @Autowired
+    private JdbcTemplate primary;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeAll
+    static void migrateReplica() {
+        Flyway.configure()
+                .dataSource(REPLICA_URL, "sa", "")
+                .locations("classpath:db/migration/common")
+                .load()
+                .migrate();
+    }
+
+    @BeforeEach
+    void setUp() {
+        replicaRouter.checkReplicas();
+    }
+
+    @Test
+    void testReadsGoToReplica() {
+        replica.update("INSERT INTO users (id, email, first_name, last_name, birthday, birth_month_day, version) "
+                + "VALUES (1000, 'replica@mail.com', 'Only', 'Replica', DATE '1990-05-15', 515, 0)");
+
+        assertEquals("replica@mail.com", userService.getUser(1000L).getEmail());
+        assertEquals(List.of(1000L), userService.findUsersByBirthdayRange(LocalDate.of(1990, 5, 1), LocalDate.of(1990, 5, 31))
+                .stream().map(User::getId).toList());
+        assertEquals(0, primary.queryForObject("SELECT COUNT(*) FROM users WHERE id = 1000", Integer.class));
+    }
+
+    @Test
+    void testWritesGoToPrimary() {
+        userService.createUser(user("primary@mail.com"));
+
+        assertEquals(1, primary.queryForObject("SELECT COUNT(*) FROM users WHERE email = 'primary@mail.com'", Integer.class));
+        assertEquals(0, replica.queryForObject("SELECT COUNT(*) FROM users WHERE email = 'primary@mail.com'", Integer.class));
+    }
+
+    @Test
+    void testClientReadsItsOwnWrites() throws Exception {
+        MockHttpServletResponse created = mockMvc.perform(post("/v1/api/users/create")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(user("writer@mail.com"))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse();
+        long id = objectMapper.readTree(created.getContentAsString()).at("/data/id").asLong();
+
+        // Another client reads from the replica, which never got the row
+        mockMvc.perform(get("/v1/api/users/" + id))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/v1/api/users/" + id).cookie(created.getCookie(ReadYourWritesFilter.LAST_WRITE_COOKIE)))
+                .andExpect(status().isOk());
+    }
+
+    private static User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setFirstName("Test");
+        user.setLastName("Test");
+        user.setBirthday(LocalDate.of(1990, 5, 15));
+        return user;
+    }
+}
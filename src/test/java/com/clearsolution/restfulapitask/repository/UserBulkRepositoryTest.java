@@ -0,0 +1,58 @@
+package com.clearsolution.restfulapitask.repository;
+
+import com.clearsolution.restfulapitask.model.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(UserBulkRepository.class)
+class UserBulkRepositoryTest {
+
+    @Autowired
+    private UserBulkRepository userBulkRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void testInsertAssignsIdsThatDoNotCollideWithHibernate() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            users.add(user("bulk" + i + "@mail.com"));
+        }
+
+        userBulkRepository.insert(users);
+        User saved = userRepository.saveAndFlush(user("jpa@mail.com"));
+
+        Set<Long> ids = new HashSet<>();
+        users.forEach(user -> ids.add(user.getId()));
+        assertEquals(120, ids.size());
+        assertFalse(ids.contains(saved.getId()));
+        assertEquals(121, userRepository.count());
+        User stored = userRepository.findByEmail("bulk7@mail.com").orElseThrow();
+        assertEquals(0L, stored.getVersion());
+        assertEquals(515, stored.getBirthMonthDay());
+        assertNull(stored.getAddress());
+    }
+
+    private static User user(String email) {
+        User user = new User();
+        user.setFirstName("Test");
+        user.setLastName("Test");
+        user.setEmail(email);
+        user.setBirthday(LocalDate.of(1990, 5, 15));
+        return user;
+    }
+}
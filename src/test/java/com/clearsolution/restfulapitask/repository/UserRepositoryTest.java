@@ -0,0 +1,125 @@
+package com.clearsolution.restfulapitask.repository;
+
+import com.clearsolution.restfulapitask.model.BirthdayPeriodCount;
+import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.model.UserField;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against the schema built by the Flyway migrations and checks that the hot queries are answered from the
+ * indexes the migrations create.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class UserRepositoryTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testBirthdayRangeSearchUsesBirthdayIdIndex() {
+        String plan = explain("SELECT * FROM users WHERE birthday BETWEEN DATE '1990-01-01' AND DATE '1990-12-31' "
+                + "ORDER BY birthday, id");
+
+        assertTrue(plan.contains("idx_users_birthday_id"), plan);
+    }
+
+    @Test
+    void testEmailLookupUsesUniqueIndex() {
+        String plan = explain("SELECT * FROM users WHERE email = 'test@mail.com'");
+
+        assertTrue(plan.contains("uk_users_email"), plan);
+    }
+
+    @Test
+    void testBirthMonthDayRangeUsesIndex() {
+        String plan = explain("SELECT * FROM users WHERE birth_month_day BETWEEN 1225 AND 1231");
+
+        assertTrue(plan.contains("idx_users_birth_month_day"), plan);
+    }
+
+    @Test
+    void testFindByEmail() {
+        userRepository.saveAndFlush(user("test@mail.com"));
+
+        assertTrue(userRepository.findByEmail("test@mail.com").isPresent());
+        assertTrue(userRepository.findByEmail("other@mail.com").isEmpty());
+        assertEquals(List.of("test@mail.com"), userRepository.findExistingEmails(List.of("test@mail.com", "other@mail.com")));
+    }
+
+    @Test
+    void testFindFieldsByBirthDateRange() {
+        User user = userRepository.saveAndFlush(user("test@mail.com"));
+
+        List<Map<String, Object>> rows = userRepository.findFieldsByBirthDateRange(LocalDate.of(1990, 1, 1),
+                LocalDate.of(1990, 12, 31), EnumSet.of(UserField.ID, UserField.BIRTHDAY));
+
+        assertEquals(List.of(Map.of("id", user.getId(), "birthday", LocalDate.of(1990, 5, 15))), rows);
+        assertTrue(userRepository.findFieldsById(user.getId() + 1, EnumSet.of(UserField.ID)).isEmpty());
+    }
+
+    @Test
+    void testCountByBirthdayYearAndMonth() {
+        userRepository.saveAndFlush(user("a@mail.com", LocalDate.of(1990, 5, 15)));
+        userRepository.saveAndFlush(user("b@mail.com", LocalDate.of(1990, 5, 20)));
+        userRepository.saveAndFlush(user("c@mail.com", LocalDate.of(1991, 2, 1)));
+        LocalDate from = LocalDate.of(1990, 1, 1);
+        LocalDate to = LocalDate.of(1991, 12, 31);
+
+        assertEquals(List.of(new BirthdayPeriodCount(1990, null, 2L), new BirthdayPeriodCount(1991, null, 1L)),
+                userRepository.countByBirthdayYear(from, to));
+        assertEquals(List.of(new BirthdayPeriodCount(1990, 5, 2L), new BirthdayPeriodCount(1991, 2, 1L)),
+                userRepository.countByBirthdayMonth(from, to));
+        assertEquals(2, userRepository.countByBirthdayBetween(LocalDate.of(1990, 5, 16), to));
+    }
+
+    @Test
+    void testStreamAllUsersInIdOrder() {
+        User first = userRepository.saveAndFlush(user("a@mail.com"));
+        User second = userRepository.saveAndFlush(user("b@mail.com"));
+
+        try (Stream<User> users = userRepository.streamAllUsers()) {
+            assertEquals(List.of(first.getId(), second.getId()), users.map(User::getId).toList());
+        }
+    }
+
+    @Test
+    void testDuplicateEmailIsRejected() {
+        userRepository.saveAndFlush(user("test@mail.com"));
+
+        assertThrows(DataIntegrityViolationException.class, () -> userRepository.saveAndFlush(user("test@mail.com")));
+    }
+
+    private String explain(String sql) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+    }
+
+    private static User user(String email) {
+        return user(email, LocalDate.of(1990, 5, 15));
+    }
+
+    private static User user(String email, LocalDate birthday) {
+        User user = new User();
+        user.setFirstName("Test");
+        user.setLastName("Test");
+        user.setEmail(email);
+        user.setBirthday(birthday);
+        return user;
+    }
+}
@@ -0,0 +1,145 @@
+package com.clearsolution.restfulapitask.service.impl;
+
+import com.clearsolution.restfulapitask.data.BatchItemResult;
+import com.clearsolution.restfulapitask.data.CursorPage;
+import com.clearsolution.restfulapitask.data.UserCursor;
+import com.clearsolution.restfulapitask.exception.UserAgeUnacceptableException;
+import com.clearsolution.restfulapitask.exception.UserNotFoundException;
+import com.clearsolution.restfulapitask.exception.UserVersionMismatchException;
+import com.clearsolution.restfulapitask.exception.WrongDateRangeException;
+import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.repository.ReactiveUserRepository;
+import com.clearsolution.restfulapitask.validation.AgeValidator;
+import com.clearsolution.restfulapitask.validation.UserValidator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class ReactiveUserServiceImplTest {
+
+    @Mock
+    private ReactiveUserRepository userRepository;
+
+    @Mock
+    private AgeValidator ageValidator;
+
+    @Mock
+    private UserValidator userValidator;
+
+    @InjectMocks
+    private ReactiveUserServiceImpl userService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        user = new User();
+        user.setId(1L);
+        user.setFirstName("Test");
+        user.setLastName("Test");
+        user.setEmail("test@mail.com");
+        user.setBirthday(LocalDate.of(1990, 5, 15));
+    }
+
+    @Test
+    void testCreateUserWithInvalidAge() {
+        when(ageValidator.isValidAge(user.getBirthday())).thenReturn(false);
+
+        assertThrows(UserAgeUnacceptableException.class, () -> userService.createUser(user).block());
+        verify(userRepository, never()).insert(any(User.class));
+    }
+
+    @Test
+    void testCreateUsersReportsResultPerItem() {
+        User minor = new User();
+        minor.setBirthday(LocalDate.now().minusYears(10));
+        when(userValidator.validate(user)).thenReturn(List.of());
+        when(userValidator.validate(minor)).thenReturn(List.of("User age is less than the acceptable limit"));
+        when(userRepository.insert(user)).thenAnswer(invocation -> {
+            user.setId(5L);
+            return Mono.just(user);
+        });
+
+        List<BatchItemResult> results = userService.createUsers(List.of(user, minor)).collectList().block();
+
+        assertEquals(BatchItemResult.created(0, 5L), results.get(0));
+        assertFalse(results.get(1).created());
+        verify(userRepository, never()).insert(minor);
+    }
+
+    @Test
+    void testUpdateMissingUser() {
+        when(userRepository.update(1L, null, user)).thenReturn(Mono.just(0L));
+
+        assertThrows(UserNotFoundException.class, () -> userService.updateUser(1L, user, null).block());
+    }
+
+    @Test
+    void testUpdateUserAtStaleVersion() {
+        when(userRepository.update(1L, 3L, user)).thenReturn(Mono.just(0L));
+        when(userRepository.findById(1L)).thenReturn(Mono.just(user));
+
+        assertThrows(UserVersionMismatchException.class, () -> userService.updateUser(1L, user, 3L).block());
+    }
+
+    @Test
+    void testUpdateUserAtExpectedVersion() {
+        when(userRepository.update(1L, 3L, user)).thenReturn(Mono.just(1L));
+
+        assertEquals(4L, userService.updateUser(1L, user, 3L).block().getVersion());
+    }
+
+    @Test
+    void testUpdateFieldsReadsBackRow() {
+        User fields = new User();
+        fields.setAddress("Kyiv");
+        when(userRepository.updateNonNullFields(1L, null, fields)).thenReturn(Mono.just(1L));
+        when(userRepository.findById(1L)).thenReturn(Mono.just(user));
+
+        assertSame(user, userService.updateUsersFields(1L, fields, null).block());
+    }
+
+    @Test
+    void testDeleteMissingUser() {
+        when(userRepository.deleteById(1L)).thenReturn(Mono.just(0L));
+
+        assertThrows(UserNotFoundException.class, () -> userService.deleteUser(1L).block());
+    }
+
+    @Test
+    void testSearchWithWrongRange() {
+        LocalDate from = LocalDate.of(2000, 1, 1);
+        LocalDate to = LocalDate.of(1990, 1, 1);
+
+        assertThrows(WrongDateRangeException.class, () -> userService.findUsersByBirthdayRange(from, to).blockLast());
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void testSearchPageReturnsCursorWhenMoreRowsExist() {
+        LocalDate from = LocalDate.of(1990, 1, 1);
+        LocalDate to = LocalDate.of(2000, 1, 1);
+        User next = new User();
+        next.setId(2L);
+        next.setBirthday(LocalDate.of(1991, 1, 1));
+        when(userRepository.findByBirthdayRange(from, to, 2)).thenReturn(Flux.just(user, next));
+
+        CursorPage<List<User>> page = userService.findUsersByBirthdayRange(from, to, null, 1).block();
+
+        assertEquals(List.of(user), page.data());
+        assertEquals(new UserCursor(user.getBirthday(), 1L), UserCursor.decode(page.nextCursor()));
+    }
+}
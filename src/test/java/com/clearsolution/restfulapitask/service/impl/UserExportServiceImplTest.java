@@ -0,0 +1,105 @@
+package com.clearsolution.restfulapitask.service.impl;
+
+import com.clearsolution.restfulapitask.data.ImportFormat;
+import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.repository.UserRepository;
+import com.clearsolution.restfulapitask.shard.ShardRouter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class UserExportServiceImplTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private UserExportServiceImpl userExportService;
+
+    private User first;
+    private User second;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        // Dates as ISO strings, as with the mapper Spring Boot configures
+        userExportService = new UserExportServiceImpl(userRepository, entityManager, Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build(), transactionManager, new DefaultListableBeanFactory().getBeanProvider(ShardRouter.class));
+        first = user(1L, "first@mail.com", "Ann", "Smith, Jr.");
+        first.setAddress("12 \"Main\" St");
+        second = user(2L, "second@mail.com", "Bob", "Jones");
+        when(userRepository.streamAllUsers()).thenReturn(Stream.of(first, second));
+    }
+
+    @Test
+    void testExportCsv() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        assertEquals(2, userExportService.exportUsers(output, ImportFormat.CSV));
+
+        assertEquals("""
+                id,email,firstName,lastName,birthday,address,phoneNumber,version
+                1,first@mail.com,Ann,"Smith, Jr.",1990-05-11,"12 ""Main"" St",,3
+                2,second@mail.com,Bob,Jones,1990-05-11,,,3
+                """, output.toString(StandardCharsets.UTF_8));
+        List<String> values = UserImportServiceImpl.parseCsvLine("1,first@mail.com,Ann,\"Smith, Jr.\",1990-05-11,\"12 \"\"Main\"\" St\",,3");
+        assertEquals("12 \"Main\" St", values.get(5));
+    }
+
+    @Test
+    void testExportNdjsonDetachesEveryUser() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        assertEquals(2, userExportService.exportUsers(output, ImportFormat.NDJSON));
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":1,"));
+        assertTrue(lines[1].startsWith("{\"id\":2,"));
+        assertTrue(lines[1].contains("\"birthday\":\"1990-05-11\""));
+        verify(entityManager).detach(first);
+        verify(entityManager).detach(second);
+    }
+
+    @Test
+    void testExportEmptyTable() {
+        when(userRepository.streamAllUsers()).thenReturn(Stream.empty());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        assertEquals(0, userExportService.exportUsers(output, ImportFormat.NDJSON));
+
+        assertEquals(0, output.size());
+    }
+
+    private static User user(Long id, String email, String firstName, String lastName) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(email);
+        user.setFirstName(firstName);
+        user.setLastName(lastName);
+        user.setBirthday(LocalDate.of(1990, 5, 11));
+        user.setVersion(3L);
+        return user;
+    }
+}
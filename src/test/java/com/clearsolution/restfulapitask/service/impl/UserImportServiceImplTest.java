@@ -0,0 +1,167 @@
+package com.clearsolution.restfulapitask.service.impl;
+
+import com.clearsolution.restfulapitask.cache.BirthdaySearchCache;
+import com.clearsolution.restfulapitask.data.ImportFormat;
+import com.clearsolution.restfulapitask.data.ImportRejection;
+import com.clearsolution.restfulapitask.data.ImportSummary;
+import com.clearsolution.restfulapitask.data.UserChangeEvent;
+import com.clearsolution.restfulapitask.events.UserEventLog;
+import com.clearsolution.restfulapitask.exception.MalformedImportException;
+import com.clearsolution.restfulapitask.index.BirthdayIndex;
+import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.repository.UserBulkRepository;
+import com.clearsolution.restfulapitask.repository.UserRepository;
+import com.clearsolution.restfulapitask.shard.ShardRouter;
+import com.clearsolution.restfulapitask.validation.UserValidator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class UserImportServiceImplTest {
+
+    @Mock
+    private UserBulkRepository userBulkRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserValidator userValidator;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Captor
+    private ArgumentCaptor<List<User>> chunks;
+
+    private final UserEventLog userEventLog = new UserEventLog(100);
+
+    private UserImportServiceImpl userImportService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(userValidator.validate(any(User.class))).thenReturn(List.of());
+        doAnswer(invocation -> {
+            long id = 1;
+            for (User user : invocation.<List<User>>getArgument(0)) {
+                user.setId(id++);
+            }
+            return null;
+        }).when(userBulkRepository).insert(anyList());
+        userImportService = new UserImportServiceImpl(userBulkRepository, userRepository, userValidator, new BirthdayIndex(false),
+                new BirthdaySearchCache(true, Duration.ZERO, 100), userEventLog, Jackson2ObjectMapperBuilder.json().build(),
+                transactionManager, new DefaultListableBeanFactory().getBeanProvider(ShardRouter.class), 2);
+    }
+
+    @Test
+    void testImportCsvWritesChunks() {
+        long start = userEventLog.lastSequence();
+        ImportSummary summary = importUsers(ImportFormat.CSV, """
+                email,firstName,lastName,birthday
+                a@mail.com,Ann,Smith,1990-05-11
+
+                b@mail.com,"Bob ""B""\",Jones,1985-01-02
+                c@mail.com,Cid,"Lee, Jr.",1970-12-31
+                """);
+
+        assertEquals(new ImportSummary(3, 0, List.of()), summary);
+        verify(userBulkRepository, times(2)).insert(chunks.capture());
+        assertEquals(List.of(2, 1), chunks.getAllValues().stream().map(List::size).toList());
+        User bob = chunks.getAllValues().get(0).get(1);
+        assertEquals("Bob \"B\"", bob.getFirstName());
+        assertEquals(LocalDate.of(1985, 1, 2), bob.getBirthday());
+        assertEquals("Lee, Jr.", chunks.getAllValues().get(1).get(0).getLastName());
+        List<UserChangeEvent> events = userEventLog.read(start, 10);
+        assertEquals(List.of("a@mail.com", "b@mail.com", "c@mail.com"), events.stream().map(event -> event.user().getEmail()).toList());
+    }
+
+    @Test
+    void testImportCsvReportsRejectedRowsByLine() {
+        when(userValidator.validate(argThat(user -> user != null && "minor@mail.com".equals(user.getEmail()))))
+                .thenReturn(List.of("User age is less than the acceptable limit"));
+        // Earlier chunks are already committed, so their emails come back from the repository as well
+        Set<String> stored = new HashSet<>(Set.of("taken@mail.com"));
+        doAnswer(invocation -> {
+            for (User user : invocation.<List<User>>getArgument(0)) {
+                user.setId((long) stored.size());
+                stored.add(user.getEmail());
+            }
+            return null;
+        }).when(userBulkRepository).insert(anyList());
+        when(userRepository.findExistingEmails(anyList()))
+                .thenAnswer(invocation -> invocation.<List<String>>getArgument(0).stream().filter(stored::contains).toList());
+
+        ImportSummary summary = importUsers(ImportFormat.CSV, """
+                email,firstName,lastName,birthday
+                minor@mail.com,Ann,Smith,2020-05-11
+                a@mail.com,Ann,Smith,11.05.1990
+                a@mail.com,Ann,Smith
+                taken@mail.com,Ann,Smith,1990-05-11
+                b@mail.com,Bob,Jones,1990-05-11
+                b@mail.com,Bob,Jones,1990-05-11
+                """);
+
+        assertEquals(1, summary.imported());
+        assertEquals(5, summary.rejected());
+        assertEquals(List.of(
+                new ImportRejection(2, List.of("User age is less than the acceptable limit")),
+                new ImportRejection(3, List.of("Birthday must be a date like 1990-05-11")),
+                new ImportRejection(4, List.of("Expected 4 columns but found 3")),
+                new ImportRejection(5, List.of("Email is already in use")),
+                new ImportRejection(7, List.of("Email is already in use"))), summary.rejections());
+    }
+
+    @Test
+    void testImportCsvWithUnknownColumn() {
+        assertThrows(MalformedImportException.class, () -> importUsers(ImportFormat.CSV, "email,password\na@mail.com,secret\n"));
+
+        verify(userBulkRepository, never()).insert(anyList());
+    }
+
+    @Test
+    void testImportCsvIgnoresExportedIdAndVersion() {
+        ImportSummary summary = importUsers(ImportFormat.CSV, """
+                id,email,firstName,lastName,birthday,address,phoneNumber,version
+                42,a@mail.com,Ann,Smith,1990-05-11,,,3
+                """);
+
+        assertEquals(1, summary.imported());
+        verify(userBulkRepository).insert(argThat(users -> users.get(0).getId() == 1 && users.get(0).getAddress() == null));
+    }
+
+    @Test
+    void testImportNdjson() {
+        ImportSummary summary = importUsers(ImportFormat.NDJSON, """
+                {"id": 99, "email": "a@mail.com", "firstName": "Ann", "lastName": "Smith", "birthday": "1990-05-11"}
+                {"email": "b@mail.com",
+                """);
+
+        assertEquals(1, summary.imported());
+        assertEquals(List.of(new ImportRejection(2, List.of("Malformed JSON"))), summary.rejections());
+        verify(userBulkRepository).insert(argThat(users -> users.size() == 1 && users.get(0).getBirthMonthDay() == 511));
+    }
+
+    private ImportSummary importUsers(ImportFormat format, String body) {
+        return userImportService.importUsers(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), format);
+    }
+}
@@ -1,20 +1,53 @@
 package com.clearsolution.restfulapitask.service.impl;
 
+import com.clearsolution.restfulapitask.cache.BirthdaySearchCache;
+import com.clearsolution.restfulapitask.cache.UserCache;
+import com.clearsolution.restfulapitask.data.BatchItemResult;
+import com.clearsolution.restfulapitask.data.BirthdayCount;
+import com.clearsolution.restfulapitask.data.BirthdayGrouping;
+import com.clearsolution.restfulapitask.data.CursorPage;
+import com.clearsolution.restfulapitask.data.UserChangeEvent;
+import com.clearsolution.restfulapitask.data.UserCursor;
+import com.clearsolution.restfulapitask.events.UserEventLog;
 import com.clearsolution.restfulapitask.exception.UserAgeUnacceptableException;
+import com.clearsolution.restfulapitask.exception.UserNotFoundException;
+import com.clearsolution.restfulapitask.exception.UserVersionMismatchException;
 import com.clearsolution.restfulapitask.exception.WrongDateRangeException;
+import com.clearsolution.restfulapitask.index.BirthdayIndex;
+import com.clearsolution.restfulapitask.model.BirthdayPeriodCount;
 import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.model.UserField;
 import com.clearsolution.restfulapitask.repository.UserRepository;
 import com.clearsolution.restfulapitask.validation.AgeValidator;
+import com.clearsolution.restfulapitask.validation.UserValidator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 public class UserServiceImplTest {
@@ -25,6 +58,30 @@ public class UserServiceImplTest {
     @Mock
     private AgeValidator ageValidator;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private UserValidator userValidator;
+
+    @Spy
+    private UserCache userCache = new UserCache(100, Duration.ofMinutes(1));
+
+    @Spy
+    private BirthdayIndex birthdayIndex = new BirthdayIndex(false);
+
+    @Spy
+    private BirthdaySearchCache birthdaySearchCache = new BirthdaySearchCache(true, Duration.ofMinutes(1), 100);
+
+    @Spy
+    private UserEventLog userEventLog = new UserEventLog(100);
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -60,59 +117,391 @@ public class UserServiceImplTest {
         assertThrows(UserAgeUnacceptableException.class, () -> userService.createUser(user));
     }
 
+    @Test
+    void testCreateUsersReportsResultPerItem() {
+        User minor = new User();
+        minor.setBirthday(LocalDate.now().minusYears(10));
+
+        when(userValidator.validate(user)).thenReturn(List.of());
+        when(userValidator.validate(minor)).thenReturn(List.of("User age is less than the acceptable limit"));
+        doAnswer(invocation -> {
+            invocation.<User>getArgument(0).setId(5L);
+            return null;
+        }).when(entityManager).persist(any(User.class));
+
+        List<BatchItemResult> results = userService.createUsers(List.of(user, minor));
+
+        assertTrue(results.get(0).created());
+        assertEquals(5L, results.get(0).id());
+        assertFalse(results.get(1).created());
+        assertEquals(List.of("User age is less than the acceptable limit"), results.get(1).errors());
+        verify(entityManager, times(1)).persist(user);
+        verify(entityManager, never()).persist(minor);
+    }
+
+    @Test
+    void testCreateUsersRejectsDuplicateEmails() {
+        User sameEmail = new User();
+        sameEmail.setEmail(user.getEmail());
+        User taken = new User();
+        taken.setEmail("taken@mail.com");
+
+        when(userValidator.validate(any(User.class))).thenReturn(List.of());
+        when(userRepository.findExistingEmails(List.of(user.getEmail(), user.getEmail(), "taken@mail.com")))
+                .thenReturn(List.of("taken@mail.com"));
+        doAnswer(invocation -> {
+            invocation.<User>getArgument(0).setId(5L);
+            return null;
+        }).when(entityManager).persist(any(User.class));
+
+        List<BatchItemResult> results = userService.createUsers(List.of(user, sameEmail, taken));
+
+        assertTrue(results.get(0).created());
+        assertEquals(List.of("Email is already in use"), results.get(1).errors());
+        assertEquals(List.of("Email is already in use"), results.get(2).errors());
+        verify(entityManager, times(1)).persist(user);
+        verify(entityManager, never()).persist(sameEmail);
+        verify(entityManager, never()).persist(taken);
+    }
+
     @Test
     void testUpdateUser() {
         Long userId = 1L;
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-
         User updateUser = new User();
         updateUser.setFirstName("Test1");
         updateUser.setLastName("Test1");
         updateUser.setBirthday(LocalDate.of(1990, 11, 11));
         updateUser.setEmail("new@example.com");
 
-        when(userRepository.save(user)).thenReturn(updateUser);
+        when(userRepository.updateUser(userId, updateUser)).thenReturn(1);
+        when(userRepository.findVersionById(userId)).thenReturn(5L);
 
-        User result = userService.updateUser(userId, updateUser);
+        User result = userService.updateUser(userId, updateUser, null);
 
+        assertEquals(userId, result.getId());
         assertEquals(updateUser.getEmail(), result.getEmail());
+        assertEquals(5L, result.getVersion());
 
-        verify(userRepository, times(1)).findById(userId);
-        verify(userRepository, times(1)).save(user);
+        verify(userRepository, never()).findById(userId);
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    void testUpdateUserNotFound() {
+        when(userRepository.updateUser(eq(1L), any(User.class))).thenReturn(0);
+
+        assertThrows(UserNotFoundException.class, () -> userService.updateUser(1L, user, null));
+    }
+
+    @Test
+    void testUpdateUserWithExpectedVersion() {
+        when(userRepository.updateUserIfVersion(eq(1L), eq(3L), any(User.class))).thenReturn(1);
+
+        User result = userService.updateUser(1L, user, 3L);
+
+        assertEquals(4L, result.getVersion());
+        assertEquals(4L, userService.getUser(1L).getVersion());
+        verify(userRepository, never()).updateUser(any(), any());
+        verify(userRepository, never()).findById(1L);
+    }
+
+    @Test
+    void testCachedUserChangesOnlyWhenTheUpdateCommits() {
+        user.setVersion(3L);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userRepository.updateUserIfVersion(eq(1L), eq(3L), any(User.class))).thenReturn(1);
+        User changes = User.copyOf(user);
+        changes.setFirstName("Changed");
+
+        inTransaction(TransactionSynchronization.STATUS_ROLLED_BACK, () -> userService.updateUser(1L, User.copyOf(changes), 3L));
+        assertEquals(3L, userService.getUser(1L).getVersion());
+
+        inTransaction(TransactionSynchronization.STATUS_COMMITTED, () -> {
+            userService.updateUser(1L, User.copyOf(changes), 3L);
+            // Readers inside the transaction's lifetime still load the committed row
+            assertEquals(3L, userService.getUser(1L).getVersion());
+        });
+        assertEquals("Changed", userService.getUser(1L).getFirstName());
+        verify(userRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void testUpdateUserVersionMismatch() {
+        when(userRepository.updateUserIfVersion(eq(1L), eq(3L), any(User.class))).thenReturn(0);
+        when(userRepository.existsById(1L)).thenReturn(true);
+
+        assertThrows(UserVersionMismatchException.class, () -> userService.updateUser(1L, user, 3L));
+    }
+
+    @Test
+    void testUpdateUserWithExpectedVersionNotFound() {
+        when(userRepository.updateUserIfVersion(eq(1L), eq(3L), any(User.class))).thenReturn(0);
+        when(userRepository.existsById(1L)).thenReturn(false);
+
+        assertThrows(UserNotFoundException.class, () -> userService.updateUser(1L, user, 3L));
     }
 
     @Test
     void testUpdateUsersFields() {
         Long userId = 1L;
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-
         User updateUser = new User();
         updateUser.setEmail("new@example.com");
 
-        when(userRepository.save(user)).thenReturn(user);
+        when(userRepository.updateNonNullFields(userId, null, updateUser)).thenReturn(1);
+        // Without an expected version the row is read back, already carrying the patch
+        user.setEmail(updateUser.getEmail());
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
 
-        User result = userService.updateUsersFields(userId, updateUser);
+        User result = userService.updateUsersFields(userId, updateUser, null);
 
         assertEquals(user.getId(), result.getId());
+        assertEquals(user.getFirstName(), result.getFirstName());
         assertEquals(updateUser.getEmail(), result.getEmail());
 
-        verify(userRepository, times(1)).findById(userId);
-        verify(userRepository, times(1)).save(user);
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    void testUpdateUsersFieldsNotFound() {
+        when(userRepository.updateNonNullFields(eq(1L), isNull(), any(User.class))).thenReturn(0);
+
+        assertThrows(UserNotFoundException.class, () -> userService.updateUsersFields(1L, new User(), null));
+
+        verify(userRepository, never()).findById(1L);
     }
 
     @Test
     void testDeleteUser() {
         Long userId = 1L;
-        User existingUser = new User();
-        existingUser.setId(userId);
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(existingUser));
+        when(userRepository.deleteUserById(userId)).thenReturn(1);
 
         assertDoesNotThrow(() -> userService.deleteUser(userId));
 
-        verify(userRepository, times(1)).delete(existingUser);
+        verify(userRepository, never()).findById(userId);
+    }
+
+    @Test
+    void testWritesArePublishedAsEvents() {
+        long start = userEventLog.lastSequence();
+        User changes = new User();
+        changes.setFirstName("Changed");
+        user.setVersion(2L);
+        when(userRepository.updateNonNullFields(1L, null, changes)).thenReturn(1);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userRepository.deleteUserById(1L)).thenReturn(1);
+
+        userService.updateUsersFields(1L, changes, null);
+        userService.deleteUser(1L);
+
+        List<UserChangeEvent> events = userEventLog.read(start, 10);
+        assertEquals(List.of(UserChangeEvent.Type.UPDATED, UserChangeEvent.Type.DELETED), events.stream().map(UserChangeEvent::type).toList());
+        assertEquals(List.of(start + 1, start + 2), events.stream().map(UserChangeEvent::sequence).toList());
+        assertEquals(2L, events.get(0).version());
+        assertEquals(1L, events.get(1).userId());
+        assertNull(events.get(1).user());
+    }
+
+    @Test
+    void testBirthdayIndexChangesOnlyWhenTheDeleteCommits() {
+        when(userRepository.deleteUserById(1L)).thenReturn(1);
+
+        inTransaction(TransactionSynchronization.STATUS_ROLLED_BACK, () -> userService.deleteUser(1L));
+        verify(birthdayIndex, never()).remove(1L);
+
+        inTransaction(TransactionSynchronization.STATUS_COMMITTED, () -> {
+            userService.deleteUser(1L);
+            verify(birthdayIndex, never()).remove(1L);
+        });
+        verify(birthdayIndex).remove(1L);
+    }
+
+    @Test
+    void testDeleteUserNotFound() {
+        when(userRepository.deleteUserById(1L)).thenReturn(0);
+
+        assertThrows(UserNotFoundException.class, () -> userService.deleteUser(1L));
+    }
+
+    @Test
+    void testGetUserIsServedFromCacheOnRepeatReads() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+
+        assertEquals(user, userService.getUser(1L));
+        assertEquals(user, userService.getUser(1L));
+
+        verify(userRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void testGetUserNotFound() {
+        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(UserNotFoundException.class, () -> userService.getUser(1L));
+    }
+
+    @Test
+    void testGetUserFieldsFromCache() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        userService.getUser(1L);
+
+        Map<String, Object> fields = userService.getUser(1L, EnumSet.of(UserField.ID, UserField.EMAIL));
+
+        assertEquals(Map.of("id", 1L, "email", "test@mail.com"), fields);
+        verify(userRepository, never()).findFieldsById(any(), any());
+    }
+
+    @Test
+    void testGetUserFieldsFromDatabase() {
+        Set<UserField> selected = EnumSet.of(UserField.ID, UserField.EMAIL);
+        when(userRepository.findFieldsById(1L, selected)).thenReturn(Optional.of(Map.of("id", 1L, "email", "test@mail.com")));
+
+        assertEquals("test@mail.com", userService.getUser(1L, selected).get("email"));
+        assertTrue(userCache.getIfPresent(1L).isEmpty());
+    }
+
+    @Test
+    void testGetUserFieldsNotFound() {
+        when(userRepository.findFieldsById(eq(1L), any())).thenReturn(Optional.empty());
+
+        assertThrows(UserNotFoundException.class, () -> userService.getUser(1L, EnumSet.of(UserField.ID)));
+    }
+
+    @Test
+    void testGetUserByEmail() {
+        when(userRepository.findByEmail(user.getEmail())).thenReturn(Optional.of(user));
+
+        assertEquals(user, userService.getUserByEmail(user.getEmail()));
+    }
+
+    @Test
+    void testGetUserByEmailNotFound() {
+        when(userRepository.findByEmail("missing@mail.com")).thenReturn(Optional.empty());
+
+        assertThrows(UserNotFoundException.class, () -> userService.getUserByEmail("missing@mail.com"));
+    }
+
+    @Test
+    void testUpdateUserRefreshesCache() {
+        user.setVersion(3L);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userRepository.updateNonNullFields(eq(1L), eq(3L), any(User.class))).thenReturn(1);
+
+        userService.getUser(1L);
+
+        User updateUser = new User();
+        updateUser.setFirstName("Updated");
+
+        User result = userService.updateUsersFields(1L, updateUser, 3L);
+
+        assertEquals(4L, result.getVersion());
+        assertEquals("Updated", userService.getUser(1L).getFirstName());
+        verify(userRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void testUpdateFieldsWithoutVersionReloadsCachedUser() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userRepository.updateNonNullFields(eq(1L), isNull(), any(User.class))).thenReturn(1);
+
+        userService.getUser(1L);
+        userService.updateUsersFields(1L, new User(), null);
+
+        verify(userRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void testUpcomingBirthdaysWithinYear() {
+        when(userRepository.findUsersByBirthMonthDayBetween(510, 520)).thenReturn(List.of(user));
+
+        assertEquals(List.of(user), userService.findUsersWithUpcomingBirthdays(LocalDate.of(2023, 5, 10), 10));
+    }
+
+    @Test
+    void testUpcomingBirthdaysWrapAroundYearEndInBirthdayOrder() {
+        User january = new User();
+        january.setId(2L);
+        january.setBirthday(LocalDate.of(1985, 1, 3));
+        User december = new User();
+        december.setId(3L);
+        december.setBirthday(LocalDate.of(1999, 12, 28));
+        when(userRepository.findUsersByBirthMonthDayBetween(1220, 1231)).thenReturn(List.of(december));
+        when(userRepository.findUsersByBirthMonthDayBetween(101, 109)).thenReturn(List.of(january));
+
+        List<User> users = userService.findUsersWithUpcomingBirthdays(LocalDate.of(2023, 12, 20), 20);
+
+        assertEquals(List.of(december, january), users);
+    }
+
+    @Test
+    void testUpcomingBirthdaysIncludeLeapDayInCommonYears() {
+        when(userRepository.findUsersByBirthMonthDayBetween(220, 229)).thenReturn(List.of());
+
+        userService.findUsersWithUpcomingBirthdays(LocalDate.of(2023, 2, 20), 8);
+
+        verify(userRepository).findUsersByBirthMonthDayBetween(220, 229);
+    }
+
+    @Test
+    void testUpcomingBirthdaysForWholeYear() {
+        when(userRepository.findUsersByBirthMonthDayBetween(101, 1231)).thenReturn(List.of());
+
+        userService.findUsersWithUpcomingBirthdays(LocalDate.of(2023, 6, 1), 366);
+
+        verify(userRepository, times(1)).findUsersByBirthMonthDayBetween(anyInt(), anyInt());
+        verify(userRepository).findUsersByBirthMonthDayBetween(101, 1231);
+    }
+
+    @Test
+    void testCountUsersByBirthdayMonth() {
+        LocalDate from = LocalDate.of(1990, 1, 1);
+        LocalDate to = LocalDate.of(1990, 12, 31);
+        when(userRepository.countByBirthdayMonth(from, to)).thenReturn(List.of(
+                new BirthdayPeriodCount(1990, 5, 3L), new BirthdayPeriodCount(1990, 11, 1L)));
+
+        List<BirthdayCount> counts = userService.countUsersByBirthday(from, to, BirthdayGrouping.MONTH);
+
+        assertEquals(List.of(new BirthdayCount("1990-05", 3), new BirthdayCount("1990-11", 1)), counts);
+    }
+
+    @Test
+    void testCountUsersByBirthdayYearFromIndex() {
+        BirthdayIndex readyIndex = new BirthdayIndex(true);
+        readyIndex.put(1L, LocalDate.of(1990, 5, 15));
+        readyIndex.put(2L, LocalDate.of(1990, 7, 1));
+        readyIndex.put(3L, LocalDate.of(1992, 1, 1));
+        readyIndex.markReady();
+        UserServiceImpl indexedService = new UserServiceImpl(userRepository, ageValidator, entityManager, userValidator,
+                userCache, readyIndex, birthdaySearchCache, userEventLog, transactionManager, meterRegistry);
+
+        List<BirthdayCount> counts = indexedService.countUsersByBirthday(LocalDate.of(1990, 1, 1), LocalDate.of(1999, 12, 31), BirthdayGrouping.YEAR);
+
+        assertEquals(List.of(new BirthdayCount("1990", 2), new BirthdayCount("1992", 1)), counts);
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void testCountUsersByAgeStartsBucketsAtLegalAge() {
+        LocalDate today = LocalDate.now();
+        LocalDate from = today.minusYears(40);
+        when(ageValidator.getLegalAge()).thenReturn(18);
+        when(userRepository.countByBirthdayBetween(any(LocalDate.class), any(LocalDate.class))).thenReturn(2L);
+        when(userRepository.countByBirthdayBetween(today.minusYears(28).plusDays(1), today.minusYears(18))).thenReturn(0L);
+
+        List<BirthdayCount> counts = userService.countUsersByBirthday(from, today, BirthdayGrouping.AGE);
+
+        assertEquals(List.of(new BirthdayCount("0-17", 2), new BirthdayCount("28-37", 2), new BirthdayCount("38-47", 2)), counts);
+        verify(userRepository).countByBirthdayBetween(today.minusYears(18).plusDays(1), today);
+        verify(userRepository).countByBirthdayBetween(from, today.minusYears(38));
+        verify(userRepository, times(4)).countByBirthdayBetween(any(LocalDate.class), any(LocalDate.class));
+    }
+
+    @Test
+    void testCountUsersByBirthdayWithWrongRange() {
+        assertThrows(WrongDateRangeException.class, () -> userService.countUsersByBirthday(LocalDate.of(2000, 1, 1),
+                LocalDate.of(1990, 1, 1), BirthdayGrouping.YEAR));
     }
 
     @Test
@@ -120,9 +509,46 @@ public class UserServiceImplTest {
         LocalDate from = LocalDate.of(1990, 1, 1);
         LocalDate to = LocalDate.of(2000, 12, 31);
 
+        when(userRepository.findUsersByBirthDateRange(from, to)).thenReturn(List.of(user));
+
         assertDoesNotThrow(() -> userService.findUsersByBirthdayRange(from, to));
 
         verify(userRepository, times(1)).findUsersByBirthDateRange(from, to);
+        assertEquals(1, meterRegistry.get("users.search.results").summary().count());
+    }
+
+    @Test
+    void testFindUsersByBirthdayRangeUsesReadyIndex() {
+        LocalDate from = LocalDate.of(1990, 1, 1);
+        LocalDate to = LocalDate.of(2000, 12, 31);
+
+        when(birthdayIndex.isReady()).thenReturn(true);
+        doReturn(new long[]{1L}).when(birthdayIndex).findIds(from, to);
+        when(userRepository.findAllById(List.of(1L))).thenReturn(List.of(user));
+
+        assertEquals(List.of(user), userService.findUsersByBirthdayRange(from, to));
+
+        verify(userRepository, never()).findUsersByBirthDateRange(from, to);
+    }
+
+    @Test
+    void testFindUsersByBirthdayRangeKeepsResultUntilUserInRangeChanges() {
+        LocalDate from = LocalDate.of(1990, 1, 1);
+        LocalDate to = LocalDate.of(2000, 12, 31);
+        when(userRepository.findUsersByBirthDateRange(from, to)).thenReturn(List.of(user));
+        when(userRepository.updateUser(eq(1L), any(User.class))).thenReturn(1);
+
+        userService.findUsersByBirthdayRange(from, to);
+        userService.findUsersByBirthdayRange(from, to);
+        verify(userRepository, times(1)).findUsersByBirthDateRange(from, to);
+
+        User moved = new User();
+        moved.setBirthday(LocalDate.of(1980, 1, 1));
+        userService.updateUser(1L, moved, null);
+        userService.findUsersByBirthdayRange(from, to);
+
+        verify(userRepository, times(2)).findUsersByBirthDateRange(from, to);
+        assertEquals(3, meterRegistry.get("users.search.results").summary().count());
     }
 
     @Test
@@ -134,4 +560,71 @@ public class UserServiceImplTest {
 
         verify(userRepository, never()).findUsersByBirthDateRange(from, to);
     }
+
+    @Test
+    void testFindUsersByBirthdayRangeFirstPage() {
+        LocalDate from = LocalDate.of(1990, 1, 1);
+        LocalDate to = LocalDate.of(2000, 12, 31);
+        User second = new User();
+        second.setId(2L);
+        second.setBirthday(LocalDate.of(1995, 3, 3));
+
+        when(userRepository.findUsersByBirthDateRange(from, to, Limit.of(2))).thenReturn(List.of(user, second));
+
+        CursorPage<List<User>> page = userService.findUsersByBirthdayRange(from, to, null, 1);
+
+        assertEquals(List.of(user), page.data());
+        assertEquals(new UserCursor(user.getBirthday(), user.getId()), UserCursor.decode(page.nextCursor()));
+    }
+
+    @Test
+    void testFindUsersByBirthdayRangeLastPage() {
+        LocalDate from = LocalDate.of(1990, 1, 1);
+        LocalDate to = LocalDate.of(2000, 12, 31);
+        String cursor = new UserCursor(LocalDate.of(1990, 1, 1), 7L).encode();
+
+        when(userRepository.findUsersByBirthDateRangeAfter(from, to, LocalDate.of(1990, 1, 1), 7L, Limit.of(11)))
+                .thenReturn(List.of(user));
+
+        CursorPage<List<User>> page = userService.findUsersByBirthdayRange(from, to, cursor, 10);
+
+        assertEquals(List.of(user), page.data());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void testFindUsersByBirthdayRangeWithInvalidCursor() {
+        LocalDate from = LocalDate.of(1990, 1, 1);
+        LocalDate to = LocalDate.of(2000, 12, 31);
+
+        assertThrows(IllegalArgumentException.class, () -> userService.findUsersByBirthdayRange(from, to, "not-a-cursor", 10));
+    }
+
+    @Test
+    void testStreamUsersByBirthdayRange() {
+        LocalDate from = LocalDate.of(1990, 1, 1);
+        LocalDate to = LocalDate.of(2000, 12, 31);
+        List<User> streamed = new ArrayList<>();
+
+        when(userRepository.streamUsersByBirthDateRange(from, to)).thenReturn(Stream.of(user));
+
+        userService.streamUsersByBirthdayRange(from, to, streamed::add);
+
+        assertEquals(List.of(user), streamed);
+        verify(entityManager, times(1)).detach(user);
+    }
+
+    private static void inTransaction(int outcome, Runnable work) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            work.run();
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            if (outcome == TransactionSynchronization.STATUS_COMMITTED) {
+                synchronizations.forEach(TransactionSynchronization::afterCommit);
+            }
+            synchronizations.forEach(synchronization -> synchronization.afterCompletion(outcome));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
 }
@@ -0,0 +1,83 @@
+package com.clearsolution.restfulapitask.shard;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardIdGeneratorTest {
+
+    private final AtomicLong clock = new AtomicLong(ShardIdGenerator.EPOCH_MILLIS + 1000);
+    private final ShardIdGenerator generator = new ShardIdGenerator(3, clock::get);
+
+    @Test
+    void testIdsCarryTheirShard() {
+        for (int shard = 0; shard < ShardIdGenerator.MAX_SHARDS; shard++) {
+            assertEquals(shard, ShardIdGenerator.shardOf(generator.nextId(shard)));
+        }
+    }
+
+    @Test
+    void testIdsAreBeyondTheExactRangeOfDoubles() {
+        long maxSafeInteger = (1L << 53) - 1;
+
+        assertTrue(new ShardIdGenerator(0).nextId(0) > maxSafeInteger);
+        assertTrue(new ShardIdGenerator(0, () -> ShardIdGenerator.EPOCH_MILLIS + Duration.ofDays(25).toMillis()).nextId(0) > maxSafeInteger);
+    }
+
+    @Test
+    void testIdsIncreaseWithinAndAcrossMilliseconds() {
+        long previous = 0;
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            if (i % 100 == 0) {
+                clock.incrementAndGet();
+            }
+            long id = generator.nextId(1);
+            assertTrue(id > previous);
+            assertTrue(ids.add(id));
+            previous = id;
+        }
+    }
+
+    @Test
+    void testExhaustedMillisecondMovesToTheNext() {
+        // One millisecond holds 4096 ids; the clock standing still must not repeat any of them
+        Set<Long> ids = new HashSet<>();
+        long previous = 0;
+        for (int i = 0; i < 3 * (1 << ShardIdGenerator.SEQUENCE_BITS); i++) {
+            long id = generator.nextId(0);
+            assertTrue(id > previous);
+            assertTrue(ids.add(id));
+            previous = id;
+        }
+    }
+
+    @Test
+    void testClockGoingBackwardsKeepsIdsIncreasing() {
+        long before = generator.nextId(2);
+        clock.addAndGet(-500);
+
+        long after = generator.nextId(2);
+
+        assertTrue(after > before);
+        assertEquals(2, ShardIdGenerator.shardOf(after));
+    }
+
+    @Test
+    void testNodesDoNotCollide() {
+        ShardIdGenerator other = new ShardIdGenerator(4, clock::get);
+
+        assertNotEquals(generator.nextId(0), other.nextId(0));
+    }
+
+    @Test
+    void testRejectsOutOfRangeShardAndNode() {
+        assertThrows(IllegalArgumentException.class, () -> generator.nextId(ShardIdGenerator.MAX_SHARDS));
+        assertThrows(IllegalArgumentException.class, () -> new ShardIdGenerator(ShardIdGenerator.MAX_NODES));
+    }
+}
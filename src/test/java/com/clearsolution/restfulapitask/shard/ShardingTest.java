@@ -0,0 +1,216 @@
+package com.clearsolution.restfulapitask.shard;
+
+import com.clearsolution.restfulapitask.config.ConcurrencyLimitingDataSource;
+import com.clearsolution.restfulapitask.data.BatchItemResult;
+import com.clearsolution.restfulapitask.data.BirthdayCount;
+import com.clearsolution.restfulapitask.data.BirthdayGrouping;
+import com.clearsolution.restfulapitask.data.CursorPage;
+import com.clearsolution.restfulapitask.data.ImportFormat;
+import com.clearsolution.restfulapitask.data.ImportSummary;
+import com.clearsolution.restfulapitask.exception.UserNotFoundException;
+import com.clearsolution.restfulapitask.model.User;
+import com.clearsolution.restfulapitask.model.UserField;
+import com.clearsolution.restfulapitask.service.UserExportService;
+import com.clearsolution.restfulapitask.service.UserImportService;
+import com.clearsolution.restfulapitask.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Three in-memory H2 databases stand in for the shards. Which database holds a row shows where it was routed.
+ */
+@SpringBootTest(properties = {
+        "app.sharding.enabled=true",
+        "app.datasource.concurrency-limit.enabled=true",
+        "app.sharding.urls=" + ShardingTest.SHARD_0 + "," + ShardingTest.SHARD_1 + "," + ShardingTest.SHARD_2
+})
+class ShardingTest {
+
+    static final String SHARD_0 = "jdbc:h2:mem:shard_0;DB_CLOSE_DELAY=-1;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH";
+    static final String SHARD_1 = "jdbc:h2:mem:shard_1;DB_CLOSE_DELAY=-1;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH";
+    static final String SHARD_2 = "jdbc:h2:mem:shard_2;DB_CLOSE_DELAY=-1;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH";
+
+    private static final List<JdbcTemplate> shards = List.of(shard(SHARD_0), shard(SHARD_1), shard(SHARD_2));
+
+    private static final Comparator<User> BY_BIRTHDAY_AND_ID = Comparator.comparing(User::getBirthday).thenComparing(User::getId);
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private UserExportService userExportService;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        shards.forEach(shard -> shard.update("DELETE FROM users"));
+    }
+
+    @Test
+    void testEachShardHasAConnectionLimitOfItsOwn() {
+        assertFalse(dataSource instanceof ConcurrencyLimitingDataSource);
+        for (int shard = 0; shard < shardRouter.size(); shard++) {
+            assertInstanceOf(ConcurrencyLimitingDataSource.class, shardRouter.shard(shard));
+        }
+    }
+
+    @Test
+    void testUsersAreSpreadByEmailAndIdsCarryTheShard() {
+        List<User> users = createUsers(30);
+
+        int[] rows = new int[shards.size()];
+        for (User user : users) {
+            int shard = shardRouter.shardFor(user.getEmail());
+            assertEquals(shard, ShardIdGenerator.shardOf(user.getId()));
+            assertEquals(1, shards.get(shard).queryForObject("SELECT COUNT(*) FROM users WHERE id = ?", Integer.class, user.getId()));
+            rows[shard]++;
+        }
+        for (int count : rows) {
+            assertTrue(count > 0);
+        }
+    }
+
+    @Test
+    void testByIdCallsGoToTheOwningShard() {
+        User created = createUsers(1).get(0);
+        int shard = ShardIdGenerator.shardOf(created.getId());
+
+        assertEquals(created.getEmail(), userService.getUser(created.getId()).getEmail());
+        assertEquals(created.getId(), userService.getUserByEmail(created.getEmail()).getId());
+
+        User changes = new User();
+        changes.setFirstName("Changed");
+        userService.updateUsersFields(created.getId(), changes, null);
+        assertEquals("Changed", shards.get(shard).queryForObject("SELECT first_name FROM users WHERE id = ?", String.class, created.getId()));
+
+        userService.deleteUser(created.getId());
+        assertEquals(0, shards.get(shard).queryForObject("SELECT COUNT(*) FROM users", Integer.class));
+        assertThrows(UserNotFoundException.class, () -> userService.getUser(created.getId()));
+    }
+
+    @Test
+    void testIdsAreSentAsExactNumbers() throws Exception {
+        User created = createUsers(1).get(0);
+
+        String json = objectMapper.writeValueAsString(userService.getUser(created.getId()));
+
+        // Clients have to parse this without going through a double, see ShardIdGenerator
+        assertTrue(json.contains("\"id\":" + created.getId() + ","));
+        assertEquals(created.getId(), objectMapper.readValue(json, User.class).getId());
+    }
+
+    @Test
+    void testUnknownShardIsNotFound() {
+        long id = new ShardIdGenerator(0).nextId(ShardIdGenerator.MAX_SHARDS - 1);
+
+        assertThrows(UserNotFoundException.class, () -> userService.getUser(id));
+    }
+
+    @Test
+    void testSearchMergesShardsInBirthdayOrder() {
+        List<User> users = createUsers(30);
+        List<Long> expected = users.stream().sorted(BY_BIRTHDAY_AND_ID).map(User::getId).toList();
+        LocalDate from = LocalDate.of(1980, 1, 1);
+        LocalDate to = LocalDate.of(1999, 12, 31);
+
+        assertEquals(expected, userService.findUsersByBirthdayRange(from, to).stream().map(User::getId).toList());
+        assertEquals(expected, userService.findUsersByBirthdayRange(from, to, EnumSet.of(UserField.ID)).stream()
+                .map(row -> (Long) row.get(UserField.ID.attribute())).toList());
+
+        List<Long> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<List<User>> page = userService.findUsersByBirthdayRange(from, to, cursor, 4);
+            page.data().forEach(user -> paged.add(user.getId()));
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        assertEquals(expected, paged);
+
+        List<Long> streamed = new ArrayList<>();
+        userService.streamUsersByBirthdayRange(from, to, user -> streamed.add(user.getId()));
+        assertEquals(expected, streamed);
+    }
+
+    @Test
+    void testCountsAreSummedAcrossShards() {
+        createUsers(30);
+
+        List<BirthdayCount> counts = userService.countUsersByBirthday(LocalDate.of(1980, 1, 1), LocalDate.of(1999, 12, 31),
+                BirthdayGrouping.MONTH);
+
+        assertEquals(30, counts.stream().mapToLong(BirthdayCount::count).sum());
+        assertEquals(counts.stream().map(BirthdayCount::group).sorted().toList(), counts.stream().map(BirthdayCount::group).toList());
+    }
+
+    @Test
+    void testImportAndExportCoverEveryShard() {
+        StringBuilder csv = new StringBuilder("email,firstName,lastName,birthday\n");
+        for (int i = 0; i < 12; i++) {
+            csv.append("import").append(i).append("@mail.com,Test,Test,1990-05-").append(10 + i).append('\n');
+        }
+
+        ImportSummary summary = userImportService.importUsers(new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)),
+                ImportFormat.CSV);
+
+        assertEquals(12, summary.imported());
+        for (int i = 0; i < 12; i++) {
+            User user = userService.getUserByEmail("import" + i + "@mail.com");
+            assertEquals(shardRouter.shardFor(user.getEmail()), ShardIdGenerator.shardOf(user.getId()));
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(12, userExportService.exportUsers(output, ImportFormat.CSV));
+        assertEquals(13, output.toString(StandardCharsets.UTF_8).split("\n").length);
+    }
+
+    private List<User> createUsers(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@mail.com");
+            user.setFirstName("Test");
+            user.setLastName("Test");
+            // Later users are older, so the shards hold their rows out of birthday order, and every three share a
+            // birthday so the merge has to order by id as well
+            user.setBirthday(LocalDate.of(1999, 12, 31).minusDays(i / 3 * 97L));
+            users.add(user);
+        }
+        List<BatchItemResult> results = userService.createUsers(users);
+        for (BatchItemResult result : results) {
+            assertTrue(result.created());
+            users.get(result.index()).setId(result.id());
+        }
+        return users;
+    }
+
+    private static JdbcTemplate shard(String url) {
+        return new JdbcTemplate(new DriverManagerDataSource(url, "sa", ""));
+    }
+}